@@ -1,64 +1,152 @@
 package com.mark.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mark.domain.DeletedMovieInfo;
 import com.mark.domain.MovieInfo;
 import com.mark.service.MoviesInfoService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.util.DigestUtils;
 import org.springframework.util.ObjectUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebInputException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
 @RestController
 @RequestMapping("/v1")
 @RequiredArgsConstructor
 public class MoviesInfoController {
 
+    public static final String STREAM_EPOCH_HEADER = "X-Stream-Epoch";
+
+    private static final Duration EMIT_TIMEOUT = Duration.ofSeconds(1);
+    private static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+    private static final String APPLICATION_STREAM_SMILE_VALUE = "application/stream+x-jackson-smile";
+
     private final MoviesInfoService moviesInfoService;
+    private final ObjectMapper objectMapper;
 
-    private final Sinks.Many<MovieInfo> moviesInfoSink = Sinks.many().replay().all();
+    private final Sinks.Many<Object> moviesInfoSink = Sinks.many().replay().all();
+    private final String streamEpoch = UUID.randomUUID().toString();
 
+    /**
+     * A present {@code ids} parameter always filters, so an empty one selects no movie infos rather than all of them.
+     */
     @GetMapping("/movieInfos")
-    public Flux<MovieInfo> getAllMovieInfos(@RequestParam(value = "year", required = false) Integer year) {
+    public Flux<MovieInfo> getAllMovieInfos(@RequestParam(value = "year", required = false) Integer year,
+                                            @RequestParam(value = "ids", required = false) List<String> ids) {
+        if (ids != null) {
+            return ids.isEmpty() ? Flux.empty() : moviesInfoService.getMovieInfosByIds(ids);
+        }
         if (!ObjectUtils.isEmpty(year)) {
             return moviesInfoService.getMovieInfoByYear(year);
         }
         return moviesInfoService.getAllMovieInfos();
     }
 
+    /**
+     * Tags the movie info with a strong ETag computed from its content and the media type it is written in, since the
+     * JSON and Smile bodies differ byte for byte, and marks the response as varying by Accept. A request whose
+     * If-None-Match matches it is answered with 304 and no body. With {@code fields}, only the selected fields and the
+     * id are read and returned.
+     */
     @GetMapping("/movieInfos/{id}")
-    public Mono<ResponseEntity<MovieInfo>> getMovieInfoById(@PathVariable String id) {
-        return moviesInfoService.getMovieInfoById(id)
-                .map(mi -> ResponseEntity.ok().body(mi))
+    public Mono<ResponseEntity<MovieInfo>> getMovieInfoById(@PathVariable String id,
+                                                            @RequestParam(value = "fields", required = false) List<String> fields,
+                                                            ServerHttpRequest request) {
+        if (!ObjectUtils.isEmpty(fields) && !MovieInfo.FIELDS.containsAll(fields)) {
+            return Mono.error(new ServerWebInputException("Unknown movie info fields " + fields + ", expected any of " + MovieInfo.FIELDS));
+        }
+
+        Mono<MovieInfo> movieInfo = ObjectUtils.isEmpty(fields)
+                ? moviesInfoService.getMovieInfoById(id)
+                : moviesInfoService.getMovieInfoById(id, fields);
+        return movieInfo
+                .map(mi -> {
+                    MediaType contentType = contentType(request);
+                    return ResponseEntity.ok()
+                            .contentType(contentType)
+                            .eTag(etag(mi, contentType))
+                            .varyBy(HttpHeaders.ACCEPT)
+                            .body(mi);
+                })
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()));
     }
 
-    @GetMapping(value = "/movieInfos/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
-    public Flux<MovieInfo> getMovieInfosStream() {
-        return moviesInfoSink.asFlux();
+    /**
+     * Streams every published movie info from the start of the sink. The sink only lives in this process, so each
+     * stream carries the epoch of the sink, and {@code offset} is only honoured with the matching {@code epoch}. A client
+     * resuming against a restarted or another instance gets the whole history rather than silently skipping events.
+     * Created and updated movie infos are streamed as they are; deletions as a {@link DeletedMovieInfo}.
+     */
+    @GetMapping(value = "/movieInfos/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE, APPLICATION_STREAM_SMILE_VALUE})
+    public Flux<Object> getMovieInfosStream(@RequestParam(value = "offset", defaultValue = "0") long offset,
+                                               @RequestParam(value = "epoch", required = false) String epoch,
+                                               ServerHttpResponse response) {
+        response.getHeaders().set(STREAM_EPOCH_HEADER, streamEpoch);
+        return moviesInfoSink.asFlux().skip(streamEpoch.equals(epoch) ? offset : 0);
     }
 
     @PostMapping("/movieInfos")
     @ResponseStatus(HttpStatus.CREATED)
     public Mono<MovieInfo> addMovieInfo(@RequestBody @Valid MovieInfo movieInfo) {
         return moviesInfoService.addMovieInfo(movieInfo)
-                .doOnNext(moviesInfoSink::tryEmitNext);
+                .doOnNext(this::publish);
     }
 
     @PutMapping("/movieInfos/{id}")
     public Mono<ResponseEntity<MovieInfo>> updateMovieInfo(@PathVariable String id, @RequestBody MovieInfo movieInfo) {
         return moviesInfoService.updateMovieInfo(id, movieInfo)
+                .doOnNext(this::publish)
                 .map(ResponseEntity.ok()::body)
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()));
     }
 
+    /**
+     * Publishes a {@link DeletedMovieInfo} on the stream, so consumers caching the movie info learn about the deletion.
+     */
     @DeleteMapping("/movieInfos/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public Mono<Void> deleteMovieInfo(@PathVariable String id) {
-        return moviesInfoService.deleteMovieInfo(id);
+        return moviesInfoService.deleteMovieInfo(id)
+                .doOnNext(movieInfo -> publish(DeletedMovieInfo.of(movieInfo.getMovieInfoId())))
+                .then();
+    }
+
+    /**
+     * Emits on the stream, spinning briefly when another request emits at the same time instead of dropping the event.
+     */
+    private void publish(Object event) {
+        moviesInfoSink.emitNext(event, Sinks.EmitFailureHandler.busyLooping(EMIT_TIMEOUT));
+    }
+
+    /**
+     * Answers in the binary Smile encoding only when the client explicitly accepts it, so JSON stays the default.
+     */
+    private static MediaType contentType(ServerHttpRequest request) {
+        return request.getHeaders().getAccept().stream().anyMatch(APPLICATION_SMILE::equalsTypeAndSubtype)
+                ? APPLICATION_SMILE
+                : MediaType.APPLICATION_JSON;
+    }
+
+    private String etag(MovieInfo movieInfo, MediaType contentType) {
+        try {
+            return "\"" + contentType.getSubtype() + "-" + DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(movieInfo)) + "\"";
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("MovieInfo could not be serialized for its ETag", e);
+        }
     }
 }
@@ -0,0 +1,12 @@
+package com.mark.domain;
+
+/**
+ * Published on the movie info stream in place of a deleted movie info, so consumers can tell a deletion from a create
+ * or an update. It carries only the id and {@code "deleted": true}.
+ */
+public record DeletedMovieInfo(String movieInfoId, boolean deleted) {
+
+    public static DeletedMovieInfo of(String movieInfoId) {
+        return new DeletedMovieInfo(movieInfoId, true);
+    }
+}
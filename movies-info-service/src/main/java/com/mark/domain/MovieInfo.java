@@ -1,5 +1,6 @@
 package com.mark.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
@@ -10,13 +11,20 @@ import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 
 @Getter
 @Builder
 @Document
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
 public class MovieInfo {
 
+    /**
+     * Fields that can be selected for a partial movie info. The id is always returned.
+     */
+    public static final Set<String> FIELDS = Set.of("name", "year", "casts", "release_date");
+
     @Id
     private final String movieInfoId;
 
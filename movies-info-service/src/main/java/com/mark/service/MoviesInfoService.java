@@ -3,15 +3,21 @@ package com.mark.service;
 import com.mark.domain.MovieInfo;
 import com.mark.repository.MoviesInfoRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 public class MoviesInfoService {
 
     private final MoviesInfoRepository moviesInfoRepository;
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
 
     public Flux<MovieInfo> getAllMovieInfos() {
         return moviesInfoRepository.findAll();
@@ -21,6 +27,20 @@ public class MoviesInfoService {
         return moviesInfoRepository.findById(id);
     }
 
+    /**
+     * Reads only the given fields of the movie info, as a Mongo projection, so the others are neither read nor
+     * returned. The id is always included.
+     */
+    public Mono<MovieInfo> getMovieInfoById(String id, List<String> fields) {
+        Query query = Query.query(Criteria.where("_id").is(id));
+        query.fields().include(fields.toArray(String[]::new));
+        return reactiveMongoTemplate.findOne(query, MovieInfo.class);
+    }
+
+    public Flux<MovieInfo> getMovieInfosByIds(List<String> ids) {
+        return moviesInfoRepository.findAllById(ids);
+    }
+
     public Mono<MovieInfo> addMovieInfo(MovieInfo movieInfo) {
         return moviesInfoRepository.save(movieInfo);
     }
@@ -33,8 +53,12 @@ public class MoviesInfoService {
                 });
     }
 
-    public Mono<Void> deleteMovieInfo(String id) {
-        return moviesInfoRepository.deleteById(id);
+    /**
+     * Deletes the movie info and returns it as it was, or nothing when no movie info has the id.
+     */
+    public Mono<MovieInfo> deleteMovieInfo(String id) {
+        return moviesInfoRepository.findById(id)
+                .flatMap(movieInfo -> moviesInfoRepository.delete(movieInfo).thenReturn(movieInfo));
     }
 
     public Flux<MovieInfo> getMovieInfoByYear(Integer year) {
@@ -102,6 +102,16 @@ class MoviesInfoControllerIntegrationTest {
                 .hasSize(1);
     }
 
+    @Test
+    void getMovieInfosByIds() {
+        webClient.get().uri(UriComponentsBuilder.fromUriString(MOVIES_INFO_URL).queryParam("ids", TARGET_ID + ",UNKNOWN").buildAndExpand().toUri())
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
     @Test
     void getMovieInfoById() {
         webClient.get().uri(MOVIES_INFO_URL + "/{id}", TARGET_ID)
@@ -116,6 +126,19 @@ class MoviesInfoControllerIntegrationTest {
                 });
     }
 
+    @Test
+    void getMovieInfoById_fields() {
+        webClient.get().uri(MOVIES_INFO_URL + "/{id}?fields=name", TARGET_ID)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.movieInfoId").isEqualTo(TARGET_ID)
+                .jsonPath("$.name").isEqualTo("Dark Knight Rises")
+                .jsonPath("$.year").doesNotExist()
+                .jsonPath("$.casts").doesNotExist();
+    }
+
     @Test
     void addMovieInfo() {
         MovieInfo movieInfo = MovieInfo.builder().movieInfoId(TARGET_ID).name("Dark Knight Rises").year(2012).casts(List.of("Christian Bale", "Tom Hardy")).release_date(LocalDate.parse("2012-07-20")).build();
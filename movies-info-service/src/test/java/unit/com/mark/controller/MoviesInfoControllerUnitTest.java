@@ -1,5 +1,6 @@
 package com.mark.controller;
 
+import com.mark.config.CodecConfig;
 import com.mark.domain.MovieInfo;
 import com.mark.service.MoviesInfoService;
 import org.junit.jupiter.api.Test;
@@ -7,25 +8,37 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.FluxExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Objects;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
 @WebFluxTest(controllers = MoviesInfoController.class)
 @AutoConfigureWebTestClient
+@Import(CodecConfig.class)
 public class MoviesInfoControllerUnitTest {
 
     private static final String TARGET_ID = "KNIGHT";
     private static final String MOVIES_INFO_URL = "/v1/movieInfos";
+    private static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
 
     @Autowired
     WebTestClient webClient;
@@ -69,6 +82,182 @@ public class MoviesInfoControllerUnitTest {
                 });
     }
 
+    @Test
+    void getMovieInfoById_fields() {
+        MovieInfo movieInfo = MovieInfo.builder().movieInfoId(TARGET_ID).name("Dark Knight Rises").year(2012).build();
+
+        when(serviceMock.getMovieInfoById(TARGET_ID, List.of("name", "year"))).thenReturn(Mono.just(movieInfo));
+
+        webClient.get().uri(MOVIES_INFO_URL + "/{id}?fields=name,year", TARGET_ID)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Dark Knight Rises")
+                .jsonPath("$.year").isEqualTo(2012)
+                .jsonPath("$.casts").doesNotExist()
+                .jsonPath("$.release_date").doesNotExist();
+
+        verify(serviceMock, never()).getMovieInfoById(TARGET_ID);
+    }
+
+    @Test
+    void getMovieInfoById_unknownField() {
+        webClient.get().uri(MOVIES_INFO_URL + "/{id}?fields=name,budget", TARGET_ID)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getMovieInfoById_notModified() {
+        MovieInfo movieInfo = MovieInfo.builder().movieInfoId(TARGET_ID).name("Dark Knight Rises").year(2012).casts(List.of("Christian Bale", "Tom Hardy")).release_date(LocalDate.parse("2012-07-20")).build();
+
+        when(serviceMock.getMovieInfoById(TARGET_ID)).thenReturn(Mono.just(movieInfo));
+
+        String etag = webClient.get().uri(MOVIES_INFO_URL + "/{id}", TARGET_ID)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(MovieInfo.class)
+                .getResponseHeaders()
+                .getETag();
+        assertNotNull(etag);
+
+        webClient.get().uri(MOVIES_INFO_URL + "/{id}", TARGET_ID)
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, etag)
+                .expectBody()
+                .isEmpty();
+    }
+
+    @Test
+    void getMovieInfoById_etagPerMediaType() {
+        MovieInfo movieInfo = MovieInfo.builder().movieInfoId(TARGET_ID).name("Dark Knight Rises").year(2012).casts(List.of("Christian Bale", "Tom Hardy")).release_date(LocalDate.parse("2012-07-20")).build();
+
+        when(serviceMock.getMovieInfoById(TARGET_ID)).thenReturn(Mono.just(movieInfo));
+
+        String jsonEtag = webClient.get().uri(MOVIES_INFO_URL + "/{id}", TARGET_ID)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectHeader()
+                .valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .returnResult(MovieInfo.class)
+                .getResponseHeaders()
+                .getETag();
+        assertNotNull(jsonEtag);
+
+        //when
+        String smileEtag = webClient.get().uri(MOVIES_INFO_URL + "/{id}", TARGET_ID)
+                .accept(APPLICATION_SMILE)
+                .header(HttpHeaders.IF_NONE_MATCH, jsonEtag)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentTypeCompatibleWith(APPLICATION_SMILE)
+                .returnResult(MovieInfo.class)
+                .getResponseHeaders()
+                .getETag();
+
+        //then
+        assertNotNull(smileEtag);
+        assertNotEquals(jsonEtag, smileEtag);
+    }
+
+    @Test
+    void getMovieInfoById_modified() {
+        MovieInfo movieInfo = MovieInfo.builder().movieInfoId(TARGET_ID).name("Dark Knight Rises").year(2012).casts(List.of("Christian Bale", "Tom Hardy")).release_date(LocalDate.parse("2012-07-20")).build();
+        MovieInfo updatedMovieInfo = MovieInfo.builder().movieInfoId(TARGET_ID).name("Dark Knight Rises").year(2025).casts(List.of("Christian Bale", "Tom Hardy")).release_date(LocalDate.parse("2012-07-20")).build();
+
+        when(serviceMock.getMovieInfoById(TARGET_ID)).thenReturn(Mono.just(movieInfo), Mono.just(updatedMovieInfo));
+
+        String etag = webClient.get().uri(MOVIES_INFO_URL + "/{id}", TARGET_ID)
+                .exchange()
+                .returnResult(MovieInfo.class)
+                .getResponseHeaders()
+                .getETag();
+        assertNotNull(etag);
+
+        webClient.get().uri(MOVIES_INFO_URL + "/{id}", TARGET_ID)
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(MovieInfo.class)
+                .consumeWith(response -> assertEquals(2025, Objects.requireNonNull(response.getResponseBody()).getYear()));
+    }
+
+    @Test
+    void getMovieInfoById_smile() {
+        MovieInfo movieInfo = MovieInfo.builder().movieInfoId(TARGET_ID).name("Dark Knight Rises").year(2012).casts(List.of("Christian Bale", "Tom Hardy")).release_date(LocalDate.parse("2012-07-20")).build();
+
+        when(serviceMock.getMovieInfoById(TARGET_ID)).thenReturn(Mono.just(movieInfo));
+
+        webClient.get().uri(MOVIES_INFO_URL + "/{id}", TARGET_ID)
+                .accept(APPLICATION_SMILE, MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .contentTypeCompatibleWith(APPLICATION_SMILE)
+                .expectBody(MovieInfo.class)
+                .consumeWith(response -> {
+                    MovieInfo mi = response.getResponseBody();
+                    assertNotNull(mi);
+                    assertEquals(TARGET_ID, mi.getMovieInfoId());
+                    assertEquals(LocalDate.parse("2012-07-20"), mi.getRelease_date());
+                });
+    }
+
+    @Test
+    void addMovieInfo_validation_smile() {
+        MovieInfo movieInfo = MovieInfo.builder().movieInfoId(TARGET_ID).name("").year(2012).casts(List.of("Christian Bale")).release_date(LocalDate.parse("2012-07-20")).build();
+
+        webClient.post().uri(MOVIES_INFO_URL)
+                .accept(APPLICATION_SMILE, MediaType.APPLICATION_JSON)
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody(String.class)
+                .isEqualTo("movieInfo.name must be present");
+    }
+
+    @Test
+    void getMovieInfosByIds() {
+        List<String> ids = List.of(TARGET_ID, "BEGINS");
+        List<MovieInfo> movieInfos = List.of(
+                MovieInfo.builder().movieInfoId("BEGINS").name("Batman Begins").year(2005).casts(List.of("Christian Bale", "Michael Cane")).release_date(LocalDate.parse("2005-06-15")).build(),
+                MovieInfo.builder().movieInfoId(TARGET_ID).name("Dark Knight Rises").year(2012).casts(List.of("Christian Bale", "Tom Hardy")).release_date(LocalDate.parse("2012-07-20")).build()
+        );
+
+        when(serviceMock.getMovieInfosByIds(ids)).thenReturn(Flux.fromIterable(movieInfos));
+
+        webClient.get().uri(UriComponentsBuilder.fromUriString(MOVIES_INFO_URL).queryParam("ids", String.join(",", ids)).buildAndExpand().toUri())
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void getMovieInfosByIds_empty() {
+        webClient.get().uri(MOVIES_INFO_URL + "?ids=")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(0);
+
+        verify(serviceMock, never()).getAllMovieInfos();
+    }
+
     @Test
     void addMovieInfo() {
         MovieInfo movieInfo = MovieInfo.builder().movieInfoId(TARGET_ID).name("Dark Knight Rises").year(2012).casts(List.of("Christian Bale", "Tom Hardy")).release_date(LocalDate.parse("2012-07-20")).build();
@@ -137,4 +326,139 @@ public class MoviesInfoControllerUnitTest {
                 .expectStatus()
                 .isNoContent();
     }
+
+    @Test
+    void getMovieInfoById_deadlineExceeded() {
+        webClient.get().uri(MOVIES_INFO_URL + "/{id}", TARGET_ID)
+                .header("X-Request-Deadline", String.valueOf(System.currentTimeMillis() - 1))
+                .exchange()
+                .expectStatus()
+                .isEqualTo(504);
+    }
+
+    @Test
+    void getMovieInfoById_deadlineExceededWhileRunning() {
+        when(serviceMock.getMovieInfoById(TARGET_ID)).thenReturn(Mono.never());
+
+        webClient.get().uri(MOVIES_INFO_URL + "/{id}", TARGET_ID)
+                .header("X-Request-Deadline", String.valueOf(System.currentTimeMillis() + 200))
+                .exchange()
+                .expectStatus()
+                .isEqualTo(504);
+    }
+
+    @Test
+    void getMovieInfosStream_fromOffset() {
+        MovieInfo first = MovieInfo.builder().movieInfoId("STREAM-1").name("Batman Begins").year(2005).casts(List.of("Christian Bale", "Michael Cane")).release_date(LocalDate.parse("2005-06-15")).build();
+        MovieInfo second = MovieInfo.builder().movieInfoId("STREAM-2").name("The Dark Knight").year(2008).casts(List.of("Christian Bale", "HeathLedger")).release_date(LocalDate.parse("2008-07-18")).build();
+
+        when(serviceMock.addMovieInfo(isA(MovieInfo.class))).thenReturn(Mono.just(first), Mono.just(second));
+
+        webClient.post().uri(MOVIES_INFO_URL).bodyValue(first).exchange().expectStatus().isCreated();
+        webClient.post().uri(MOVIES_INFO_URL).bodyValue(second).exchange().expectStatus().isCreated();
+
+        FluxExchangeResult<MovieInfo> historyResult = webClient.get().uri(MOVIES_INFO_URL + "/stream")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(MovieInfo.class);
+        String epoch = historyResult.getResponseHeaders().getFirst(MoviesInfoController.STREAM_EPOCH_HEADER);
+        assertNotNull(epoch);
+        List<MovieInfo> history = historyResult.getResponseBody()
+                .takeUntil(movieInfo -> "STREAM-2".equals(movieInfo.getMovieInfoId()))
+                .collectList()
+                .block();
+        assertNotNull(history);
+
+        Flux<MovieInfo> resumed = webClient.get().uri(MOVIES_INFO_URL + "/stream?offset={offset}&epoch={epoch}", history.size() - 1, epoch)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(MovieInfo.class)
+                .getResponseBody();
+
+        StepVerifier.create(resumed)
+                .assertNext(movieInfo -> assertEquals("STREAM-2", movieInfo.getMovieInfoId()))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void getMovieInfosStream_otherEpochReplaysFromStart() {
+        MovieInfo movieInfo = MovieInfo.builder().movieInfoId("STREAM-EPOCH").name("Batman Begins").year(2005).casts(List.of("Christian Bale", "Michael Cane")).release_date(LocalDate.parse("2005-06-15")).build();
+
+        when(serviceMock.addMovieInfo(isA(MovieInfo.class))).thenReturn(Mono.just(movieInfo));
+
+        webClient.post().uri(MOVIES_INFO_URL).bodyValue(movieInfo).exchange().expectStatus().isCreated();
+
+        MovieInfo first = webClient.get().uri(MOVIES_INFO_URL + "/stream")
+                .exchange()
+                .returnResult(MovieInfo.class)
+                .getResponseBody()
+                .blockFirst();
+        assertNotNull(first);
+
+        Flux<MovieInfo> resumed = webClient.get().uri(MOVIES_INFO_URL + "/stream?offset={offset}&epoch={epoch}", 1, "restarted")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(MovieInfo.class)
+                .getResponseBody();
+
+        StepVerifier.create(resumed)
+                .assertNext(streamed -> assertEquals(first.getMovieInfoId(), streamed.getMovieInfoId()))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void updateMovieInfo_publishesToStream() {
+        MovieInfo movieInfo = MovieInfo.builder().movieInfoId("STREAM-UPDATED").name("Dark Knight Rises").year(2025).casts(List.of("Christian Bale", "Tom Hardy")).release_date(LocalDate.parse("2025-07-20")).build();
+
+        when(serviceMock.updateMovieInfo(isA(String.class), isA(MovieInfo.class))).thenReturn(Mono.just(movieInfo));
+
+        webClient.put().uri(MOVIES_INFO_URL + "/{id}", movieInfo.getMovieInfoId())
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful();
+
+        Flux<MovieInfo> stream = webClient.get().uri(MOVIES_INFO_URL + "/stream")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(MovieInfo.class)
+                .getResponseBody()
+                .filter(streamed -> "STREAM-UPDATED".equals(streamed.getMovieInfoId()));
+
+        StepVerifier.create(stream)
+                .assertNext(streamed -> assertEquals(2025, streamed.getYear()))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void deleteMovieInfo_publishesToStream() {
+        MovieInfo movieInfo = MovieInfo.builder().movieInfoId("STREAM-DELETED").name("Dark Knight Rises").year(2012).casts(List.of("Christian Bale", "Tom Hardy")).release_date(LocalDate.parse("2012-07-20")).build();
+
+        when(serviceMock.deleteMovieInfo("STREAM-DELETED")).thenReturn(Mono.just(movieInfo));
+
+        webClient.delete().uri(MOVIES_INFO_URL + "/{id}", movieInfo.getMovieInfoId())
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        Flux<String> stream = webClient.get().uri(MOVIES_INFO_URL + "/stream")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(String.class)
+                .getResponseBody()
+                .filter(streamed -> streamed.contains("STREAM-DELETED"));
+
+        StepVerifier.create(stream)
+                .expectNext("{\"movieInfoId\":\"STREAM-DELETED\",\"deleted\":true}")
+                .thenCancel()
+                .verify();
+    }
 }
@@ -0,0 +1,93 @@
+package com.mark.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Smile encoder that writes a multi-value, non-streaming body as a single Smile array. The default encoder joins the
+ * elements with JSON array delimiters, which are not valid Smile. The array is written as the elements arrive, with one
+ * generator for the whole body so that Smile's shared name and value references stay valid, and every element is
+ * flushed as its own buffer instead of collecting the body in memory first.
+ */
+public class SmileArrayEncoder extends Jackson2SmileEncoder {
+
+    public SmileArrayEncoder(ObjectMapper objectMapper, MimeType... mimeTypes) {
+        super(objectMapper, mimeTypes);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory, ResolvableType elementType,
+                                   MimeType mimeType, Map<String, Object> hints) {
+        if (inputStream instanceof Mono || isStreaming(mimeType)) {
+            return super.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+        }
+        ObjectWriter writer = getObjectMapper().writerFor(getObjectMapper().constructType(elementType.getType()));
+        return Flux.using(
+                () -> new ArrayWriter(getObjectMapper(), writer),
+                arrayWriter -> Flux.from(inputStream)
+                        .map(value -> bufferFactory.wrap(arrayWriter.writeElement(value)))
+                        .concatWith(Mono.fromCallable(() -> bufferFactory.wrap(arrayWriter.finish()))),
+                ArrayWriter::close);
+    }
+
+    private boolean isStreaming(MimeType mimeType) {
+        return mimeType != null && getStreamingMediaTypes().stream().anyMatch(streamingType -> streamingType.isCompatibleWith(mimeType));
+    }
+
+    private static class ArrayWriter {
+
+        private final ObjectWriter writer;
+        private final ByteArrayBuilder output = new ByteArrayBuilder();
+        private final JsonGenerator generator;
+
+        ArrayWriter(ObjectMapper objectMapper, ObjectWriter writer) throws IOException {
+            this.writer = writer;
+            this.generator = objectMapper.getFactory().createGenerator(output);
+            generator.writeStartArray();
+        }
+
+        byte[] writeElement(Object value) {
+            try {
+                writer.writeValue(generator, value);
+                return drain();
+            } catch (IOException ex) {
+                throw new EncodingException("Could not write Smile array element: " + ex.getMessage(), ex);
+            }
+        }
+
+        byte[] finish() throws IOException {
+            generator.writeEndArray();
+            return drain();
+        }
+
+        void close() {
+            try {
+                generator.close();
+            } catch (IOException ignored) {
+                // the body is already written or abandoned; nothing is left to report to
+            }
+            output.release();
+        }
+
+        private byte[] drain() throws IOException {
+            generator.flush();
+            byte[] bytes = output.toByteArray();
+            output.reset();
+            return bytes;
+        }
+    }
+}
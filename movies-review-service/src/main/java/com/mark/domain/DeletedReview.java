@@ -0,0 +1,12 @@
+package com.mark.domain;
+
+/**
+ * Published on the review stream in place of a deleted review, so consumers can tell a deletion from a create or an
+ * update. It carries the ids and {@code "deleted": true}.
+ */
+public record DeletedReview(String reviewId, Long movieInfoId, boolean deleted) {
+
+    public static DeletedReview of(Review review) {
+        return new DeletedReview(review.getReviewId(), review.getMovieInfoId(), true);
+    }
+}
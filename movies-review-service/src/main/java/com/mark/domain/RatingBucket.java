@@ -0,0 +1,10 @@
+package com.mark.domain;
+
+import org.springframework.data.annotation.Id;
+
+/**
+ * One row of the rating aggregation: reviews grouped by their rating rounded down to a whole number.
+ * The rating is null for the bucket of reviews without a rating.
+ */
+public record RatingBucket(@Id Double rating, Long count, Double ratingSum) {
+}
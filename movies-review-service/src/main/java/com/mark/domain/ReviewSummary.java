@@ -0,0 +1,48 @@
+package com.mark.domain;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Getter
+@Builder
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ReviewSummary {
+
+    private Long movieInfoId;
+    private long count;
+    private Double averageRating;
+    private Map<Integer, Long> ratingHistogram;
+
+    /**
+     * Folds the rating buckets of one movie into a summary. Reviews without a rating are counted but left out of the
+     * average and the histogram.
+     */
+    public static ReviewSummary of(Long movieInfoId, List<RatingBucket> buckets) {
+        long count = 0;
+        long ratedCount = 0;
+        double ratingSum = 0;
+        Map<Integer, Long> ratingHistogram = new TreeMap<>();
+
+        for (RatingBucket bucket : buckets) {
+            count += bucket.count();
+            if (bucket.rating() != null) {
+                ratedCount += bucket.count();
+                ratingSum += bucket.ratingSum();
+                ratingHistogram.merge(bucket.rating().intValue(), bucket.count(), Long::sum);
+            }
+        }
+
+        return ReviewSummary.builder()
+                .movieInfoId(movieInfoId)
+                .count(count)
+                .averageRating(ratedCount == 0 ? null : ratingSum / ratedCount)
+                .ratingHistogram(ratingHistogram)
+                .build();
+    }
+}
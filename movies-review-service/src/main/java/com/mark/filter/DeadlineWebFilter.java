@@ -0,0 +1,59 @@
+package com.mark.filter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Honours the caller's deadline (epoch millis in {@value #DEADLINE_HEADER}): expired requests are rejected up front
+ * and running ones are cancelled, together with their Mongo queries, once the deadline passes.
+ */
+@Slf4j
+@Component
+public class DeadlineWebFilter implements WebFilter {
+
+    public static final String DEADLINE_HEADER = "X-Request-Deadline";
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        Optional<Instant> deadline = parse(exchange.getRequest().getHeaders().getFirst(DEADLINE_HEADER));
+        if (deadline.isEmpty()) {
+            return chain.filter(exchange);
+        }
+
+        Duration remaining = Duration.between(Instant.now(), deadline.get());
+        if (remaining.isNegative() || remaining.isZero()) {
+            log.info("Request deadline {} already passed for {}", deadline.get(), exchange.getRequest().getPath());
+            return gatewayTimeout(exchange);
+        }
+
+        return chain.filter(exchange)
+                .timeout(remaining)
+                .onErrorResume(TimeoutException.class, ex -> {
+                    log.info("Request deadline {} exceeded for {}", deadline.get(), exchange.getRequest().getPath());
+                    return gatewayTimeout(exchange);
+                });
+    }
+
+    private Optional<Instant> parse(String headerValue) {
+        try {
+            return Optional.ofNullable(headerValue).map(Long::parseLong).map(Instant::ofEpochMilli);
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    private Mono<Void> gatewayTimeout(ServerWebExchange exchange) {
+        exchange.getResponse().setStatusCode(HttpStatus.GATEWAY_TIMEOUT);
+        return exchange.getResponse().setComplete();
+    }
+}
@@ -1,6 +1,8 @@
 package com.mark.handler;
 
+import com.mark.domain.DeletedReview;
 import com.mark.domain.Review;
+import com.mark.domain.ReviewSummary;
 import com.mark.exception.ReviewDataException;
 import com.mark.exception.ReviewNotFoundException;
 import com.mark.repository.ReviewReactiveRepository;
@@ -8,14 +10,22 @@ import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -24,21 +34,93 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ReviewHandler {
 
+    private static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+    private static final MediaType APPLICATION_STREAM_SMILE = new MediaType("application", "stream+x-jackson-smile");
+    private static final int MAX_PAGE_LIMIT = 1000;
+    private static final Duration EMIT_TIMEOUT = Duration.ofSeconds(1);
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final Validator validator;
     private final ReviewReactiveRepository reviewRepository;
-    private final Sinks.Many<Review> reviewsSink = Sinks.many().replay().latest();
+    private final Sinks.Many<Object> reviewsSink = Sinks.many().replay().latest();
 
+    /**
+     * A present {@code movieInfoIds} parameter always filters, so an empty one selects no reviews rather than all.
+     */
     public Mono<ServerResponse> getReviews(ServerRequest request) {
+        if (request.queryParams().containsKey("movieInfoIds")) {
+            List<Long> movieInfoIds = request.queryParams().get("movieInfoIds").stream()
+                    .flatMap(ids -> Arrays.stream(ids.split(",")))
+                    .map(String::trim)
+                    .filter(id -> !id.isEmpty())
+                    .map(Long::parseLong)
+                    .toList();
+            Flux<Review> reviews = movieInfoIds.isEmpty() ? Flux.empty() : reviewRepository.findByMovieInfoIdIn(movieInfoIds);
+            return ServerResponse.ok().contentType(contentType(request, MediaType.APPLICATION_JSON, APPLICATION_SMILE))
+                    .body(reviews, Review.class);
+        }
+
+        Optional<String> movieInfoId = request.queryParam("movieInfoId");
+        Optional<String> limit = request.queryParam("limit");
+        if (movieInfoId.isPresent() && limit.isPresent()) {
+            return getReviewPage(Long.parseLong(movieInfoId.get()), Integer.parseInt(limit.get()),
+                    request.queryParam("cursor").orElse(null), contentType(request, MediaType.APPLICATION_JSON, APPLICATION_SMILE));
+        }
+
+        MediaType contentType = listContentType(request);
+        return movieInfoId
+                .map(s -> ServerResponse.ok().contentType(contentType).body(reviewRepository.findByMovieInfoId(Long.parseLong(s)), Review.class))
+                .orElseGet(() -> ServerResponse.ok().contentType(contentType).body(reviewRepository.findAll(), Review.class));
+    }
+
+    /**
+     * Returns at most {@code limit} reviews of a movie ordered by id, starting after the cursor. One extra review is read
+     * to tell whether another page exists, in which case the id of the last returned review is sent as the next cursor.
+     */
+    private Mono<ServerResponse> getReviewPage(Long movieInfoId, int limit, String cursor, MediaType contentType) {
+        if (limit < 1) {
+            return Mono.error(new ReviewDataException("limit must be positive"));
+        }
+
+        int pageLimit = Math.min(limit, MAX_PAGE_LIMIT);
+        Pageable pageable = PageRequest.of(0, pageLimit + 1, Sort.by("reviewId"));
+        Flux<Review> reviews = cursor == null
+                ? reviewRepository.findByMovieInfoId(movieInfoId, pageable)
+                : reviewRepository.findByMovieInfoIdAndReviewIdGreaterThan(movieInfoId, cursor, pageable);
+
+        return reviews.collectList()
+                .flatMap(page -> {
+                    if (page.size() <= pageLimit) {
+                        return ServerResponse.ok().contentType(contentType).bodyValue(page);
+                    }
+                    List<Review> bounded = page.subList(0, pageLimit);
+                    return ServerResponse.ok().contentType(contentType)
+                            .header(NEXT_CURSOR_HEADER, bounded.get(pageLimit - 1).getReviewId())
+                            .bodyValue(bounded);
+                });
+    }
+
+    /**
+     * Summarizes the reviews of one movie inside the database, so callers get the count, average and histogram without
+     * pulling every review over the wire.
+     */
+    public Mono<ServerResponse> getReviewSummary(ServerRequest request) {
+        MediaType contentType = contentType(request, MediaType.APPLICATION_JSON, APPLICATION_SMILE);
         return request.queryParam("movieInfoId")
-                .map(s -> ServerResponse.ok().body(reviewRepository.findByMovieInfoId(Long.parseLong(s)), Review.class))
-                .orElseGet(() -> ServerResponse.ok().body(reviewRepository.findAll(), Review.class));
+                .map(Long::parseLong)
+                .map(movieInfoId -> reviewRepository.summarizeRatingsByMovieInfoId(movieInfoId)
+                        .collectList()
+                        .map(buckets -> ReviewSummary.of(movieInfoId, buckets))
+                        .flatMap(summary -> ServerResponse.ok().contentType(contentType).bodyValue(summary)))
+                .orElseGet(() -> Mono.error(new ReviewDataException("movieInfoId must be present")));
     }
 
     public Mono<ServerResponse> addReview(ServerRequest request) {
         return request.bodyToMono(Review.class)
                 .doOnNext(this::validate)
                 .flatMap(reviewRepository::save)
-                .doOnNext(reviewsSink::tryEmitNext)
+                .doOnNext(this::publish)
                 .flatMap(ServerResponse.status(HttpStatus.CREATED)::bodyValue);
     }
 
@@ -67,6 +149,7 @@ public class ReviewHandler {
                             return review;
                         })
                         .flatMap(reviewRepository::save)
+                        .doOnNext(this::publish)
                         .flatMap(savedReview -> ServerResponse.ok().bodyValue(savedReview))
                 );
     }
@@ -75,13 +158,45 @@ public class ReviewHandler {
         String id = request.pathVariable("id");
 
         return reviewRepository.findById(id)
-                .flatMap(review -> reviewRepository.deleteById(id))
+                .flatMap(review -> reviewRepository.deleteById(id).thenReturn(review))
+                .doOnNext(review -> publish(DeletedReview.of(review)))
                 .then(ServerResponse.noContent().build());
     }
 
+    /**
+     * Emits on the stream, spinning briefly when another request emits at the same time instead of dropping the event.
+     * Deletions are published as a {@link DeletedReview}, so consumers caching the review learn about the deletion and
+     * can tell it from a create or an update.
+     */
+    private void publish(Object event) {
+        reviewsSink.emitNext(event, Sinks.EmitFailureHandler.busyLooping(EMIT_TIMEOUT));
+    }
+
     public Mono<ServerResponse> getReviewsStream(ServerRequest request) {
         return ServerResponse.ok()
-                .contentType(MediaType.APPLICATION_NDJSON)
-                .body(reviewsSink.asFlux(), Review.class);
+                .contentType(contentType(request, MediaType.APPLICATION_NDJSON, APPLICATION_STREAM_SMILE))
+                .body(reviewsSink.asFlux(), Object.class);
+    }
+
+    /**
+     * Lets a client that consumes the reviews one by one ask for a streaming type, which writes every review as soon as
+     * it is read. Otherwise the list is a JSON or Smile array.
+     */
+    private MediaType listContentType(ServerRequest request) {
+        List<MediaType> accept = request.headers().accept();
+        if (accept.stream().anyMatch(APPLICATION_STREAM_SMILE::equalsTypeAndSubtype)) {
+            return APPLICATION_STREAM_SMILE;
+        }
+        if (accept.stream().anyMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype)) {
+            return MediaType.APPLICATION_NDJSON;
+        }
+        return contentType(request, MediaType.APPLICATION_JSON, APPLICATION_SMILE);
+    }
+
+    /**
+     * Answers in the binary Smile encoding only when the client explicitly accepts it, so JSON stays the default.
+     */
+    private MediaType contentType(ServerRequest request, MediaType defaultType, MediaType binaryType) {
+        return request.headers().accept().stream().anyMatch(binaryType::equalsTypeAndSubtype) ? binaryType : defaultType;
     }
 }
@@ -1,10 +1,27 @@
 package com.mark.repository;
 
+import com.mark.domain.RatingBucket;
 import com.mark.domain.Review;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 
+import java.util.Collection;
+
 public interface ReviewReactiveRepository extends ReactiveMongoRepository<Review, String> {
 
     Flux<Review> findByMovieInfoId(Long movieInfoId);
+
+    Flux<Review> findByMovieInfoId(Long movieInfoId, Pageable pageable);
+
+    Flux<Review> findByMovieInfoIdAndReviewIdGreaterThan(Long movieInfoId, String reviewId, Pageable pageable);
+
+    Flux<Review> findByMovieInfoIdIn(Collection<Long> movieInfoIds);
+
+    @Aggregation(pipeline = {
+            "{ $match: { movieInfoId: ?0 } }",
+            "{ $group: { _id: { $floor: '$rating' }, count: { $sum: 1 }, ratingSum: { $sum: '$rating' } } }"
+    })
+    Flux<RatingBucket> summarizeRatingsByMovieInfoId(Long movieInfoId);
 }
@@ -22,6 +22,7 @@ public class ReviewRouter {
                                 .PUT("/{id}", reviewHandler::updateReview)
                                 .DELETE("/{id}", reviewHandler::deleteReview)
                                 .GET("/stream", reviewHandler::getReviewsStream)
+                                .GET("/summary", reviewHandler::getReviewSummary)
                 )
                 .build();
     }
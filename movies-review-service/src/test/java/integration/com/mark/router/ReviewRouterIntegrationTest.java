@@ -1,6 +1,8 @@
 package com.mark.router;
 
 import com.mark.domain.Review;
+import com.mark.domain.ReviewSummary;
+import com.mark.handler.ReviewHandler;
 import com.mark.repository.ReviewReactiveRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,8 +15,10 @@ import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
@@ -66,6 +70,55 @@ class ReviewRouterIntegrationTest {
                 .hasSize(2);
     }
 
+    @Test
+    void getReviewsByMovieInfoIds() {
+        webClient.get().uri(UriComponentsBuilder.fromUriString(REVIEW_URL).queryParam("movieInfoIds", "1,2").buildAndExpand().toUri())
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Review.class)
+                .hasSize(3);
+    }
+
+    @Test
+    void getReviewPage() {
+        String cursor = webClient.get().uri(REVIEW_URL + "?movieInfoId={movieInfoId}&limit={limit}", 1L, 1)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Review.class)
+                .hasSize(1)
+                .returnResult()
+                .getResponseHeaders()
+                .getFirst(ReviewHandler.NEXT_CURSOR_HEADER);
+        assertNotNull(cursor);
+
+        webClient.get().uri(REVIEW_URL + "?movieInfoId={movieInfoId}&limit={limit}&cursor={cursor}", 1L, 1, cursor)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .doesNotExist(ReviewHandler.NEXT_CURSOR_HEADER)
+                .expectBodyList(Review.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getReviewSummary() {
+        webClient.get().uri(REVIEW_URL + "/summary?movieInfoId={movieInfoId}", 1L)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody(ReviewSummary.class)
+                .consumeWith(response -> {
+                    ReviewSummary summary = response.getResponseBody();
+                    assert summary != null;
+                    assertEquals(2L, summary.getCount());
+                    assertEquals(9.0, summary.getAverageRating());
+                    assertEquals(Map.of(9, 2L), summary.getRatingHistogram());
+                });
+    }
+
     @Test
     void addReview() {
         // given
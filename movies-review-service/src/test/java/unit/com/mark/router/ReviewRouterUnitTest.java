@@ -1,8 +1,12 @@
 package com.mark.router;
 
+import com.mark.config.CodecConfig;
+import com.mark.domain.RatingBucket;
 import com.mark.domain.Review;
+import com.mark.domain.ReviewSummary;
 import com.mark.exception.ReviewNotFoundException;
 import com.mark.exceptionhandler.GlobalErrorHandler;
+import com.mark.filter.DeadlineWebFilter;
 import com.mark.handler.ReviewHandler;
 import com.mark.repository.ReviewReactiveRepository;
 import org.junit.jupiter.api.Test;
@@ -10,25 +14,36 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest
-@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class})
+@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class, DeadlineWebFilter.class, CodecConfig.class})
 @AutoConfigureWebTestClient
 public class ReviewRouterUnitTest {
 
     private static final String TARGET_ID = "ID";
     private static final String REVIEW_URL = "/v1/reviews";
+    private static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
 
     @MockBean
     private ReviewReactiveRepository reviewRepositoryMock;
@@ -54,6 +69,171 @@ public class ReviewRouterUnitTest {
                 .hasSize(3);
     }
 
+    @Test
+    void getAllReviews_smile() {
+        List<Review> reviews = List.of(
+                Review.builder().movieInfoId(1L).comment("Awesome Movie").rating(9.0).build(),
+                Review.builder().reviewId(TARGET_ID).movieInfoId(2L).comment("Excellent Movie").rating(8.0).build()
+        );
+
+        when(reviewRepositoryMock.findAll()).thenReturn(Flux.fromIterable(reviews));
+
+        webClient.get().uri(REVIEW_URL)
+                .accept(APPLICATION_SMILE)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .contentTypeCompatibleWith(APPLICATION_SMILE)
+                .expectBodyList(Review.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void getReviewsByMovieInfoId_ndjson() {
+        List<Review> reviews = List.of(
+                Review.builder().movieInfoId(1L).comment("Awesome Movie").rating(9.0).build(),
+                Review.builder().reviewId(TARGET_ID).movieInfoId(1L).comment("Excellent Movie").rating(8.0).build()
+        );
+
+        when(reviewRepositoryMock.findByMovieInfoId(1L)).thenReturn(Flux.fromIterable(reviews));
+
+        webClient.get().uri(REVIEW_URL + "?movieInfoId=1")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Review.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void getReviewsByMovieInfoIds() {
+        List<Review> reviews = List.of(
+                Review.builder().movieInfoId(1L).comment("Awesome Movie").rating(9.0).build(),
+                Review.builder().reviewId(TARGET_ID).movieInfoId(2L).comment("Excellent Movie").rating(8.0).build()
+        );
+
+        when(reviewRepositoryMock.findByMovieInfoIdIn(List.of(1L, 2L))).thenReturn(Flux.fromIterable(reviews));
+
+        webClient.get().uri(UriComponentsBuilder.fromUriString(REVIEW_URL).queryParam("movieInfoIds", "1,2").buildAndExpand().toUri())
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Review.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void getReviewsByMovieInfoIds_empty() {
+        webClient.get().uri(REVIEW_URL + "?movieInfoIds=")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Review.class)
+                .hasSize(0);
+
+        verify(reviewRepositoryMock, never()).findAll();
+    }
+
+    @Test
+    void getReviewPage() {
+        List<Review> reviews = List.of(
+                Review.builder().reviewId("1").movieInfoId(1L).comment("Awesome Movie").rating(9.0).build(),
+                Review.builder().reviewId("2").movieInfoId(1L).comment("Wonderful Movie").rating(9.0).build(),
+                Review.builder().reviewId("3").movieInfoId(1L).comment("Excellent Movie").rating(8.0).build()
+        );
+
+        when(reviewRepositoryMock.findByMovieInfoId(eq(1L), any(Pageable.class))).thenReturn(Flux.fromIterable(reviews));
+
+        webClient.get().uri(REVIEW_URL + "?movieInfoId={movieInfoId}&limit={limit}", 1L, 2)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .valueEquals(ReviewHandler.NEXT_CURSOR_HEADER, "2")
+                .expectBodyList(Review.class)
+                .hasSize(2);
+
+        verify(reviewRepositoryMock).findByMovieInfoId(1L, PageRequest.of(0, 3, Sort.by("reviewId")));
+    }
+
+    @Test
+    void getReviewPage_lastPage() {
+        List<Review> reviews = List.of(
+                Review.builder().reviewId("3").movieInfoId(1L).comment("Excellent Movie").rating(8.0).build()
+        );
+
+        when(reviewRepositoryMock.findByMovieInfoIdAndReviewIdGreaterThan(eq(1L), eq("2"), any(Pageable.class))).thenReturn(Flux.fromIterable(reviews));
+
+        webClient.get().uri(REVIEW_URL + "?movieInfoId={movieInfoId}&limit={limit}&cursor={cursor}", 1L, 2, "2")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .doesNotExist(ReviewHandler.NEXT_CURSOR_HEADER)
+                .expectBodyList(Review.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getReviewPage_invalidLimit() {
+        webClient.get().uri(REVIEW_URL + "?movieInfoId={movieInfoId}&limit={limit}", 1L, 0)
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody(String.class)
+                .isEqualTo("limit must be positive");
+    }
+
+    @Test
+    void getReviewSummary() {
+        List<RatingBucket> buckets = List.of(
+                new RatingBucket(9.0, 2L, 18.5),
+                new RatingBucket(8.0, 1L, 8.0),
+                new RatingBucket(null, 1L, 0.0)
+        );
+
+        when(reviewRepositoryMock.summarizeRatingsByMovieInfoId(1L)).thenReturn(Flux.fromIterable(buckets));
+
+        webClient.get().uri(REVIEW_URL + "/summary?movieInfoId={movieInfoId}", 1L)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody(ReviewSummary.class)
+                .consumeWith(response -> {
+                    ReviewSummary summary = response.getResponseBody();
+                    assert summary != null;
+                    assertEquals(1L, summary.getMovieInfoId());
+                    assertEquals(4L, summary.getCount());
+                    assertEquals(26.5 / 3, summary.getAverageRating());
+                    assertEquals(Map.of(8, 1L, 9, 2L), summary.getRatingHistogram());
+                });
+    }
+
+    @Test
+    void getReviewSummary_withoutMovieInfoId() {
+        webClient.get().uri(REVIEW_URL + "/summary")
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody(String.class)
+                .isEqualTo("movieInfoId must be present");
+    }
+
+    @Test
+    void getReviews_deadlineExceeded() {
+        when(reviewRepositoryMock.findByMovieInfoId(1L)).thenReturn(Flux.never());
+
+        webClient.get().uri(UriComponentsBuilder.fromUriString(REVIEW_URL).queryParam("movieInfoId", 1L).buildAndExpand().toUri())
+                .header(DeadlineWebFilter.DEADLINE_HEADER, String.valueOf(System.currentTimeMillis() + 200))
+                .exchange()
+                .expectStatus()
+                .isEqualTo(504);
+    }
+
     @Test
     void addReview() {
         // given
@@ -119,6 +299,13 @@ public class ReviewRouterUnitTest {
                 });
 
         // then
+        StepVerifier.create(webClient.get().uri(REVIEW_URL + "/stream")
+                        .exchange()
+                        .returnResult(Review.class)
+                        .getResponseBody())
+                .assertNext(streamedReview -> assertEquals("G.O.A.T Movie", streamedReview.getComment()))
+                .thenCancel()
+                .verify();
     }
 
     @Test
@@ -157,5 +344,12 @@ public class ReviewRouterUnitTest {
                 .isNoContent();
 
         // then
+        StepVerifier.create(webClient.get().uri(REVIEW_URL + "/stream")
+                        .exchange()
+                        .returnResult(String.class)
+                        .getResponseBody())
+                .assertNext(streamedReview -> assertEquals("{\"reviewId\":\"" + TARGET_ID + "\",\"movieInfoId\":1,\"deleted\":true}", streamedReview))
+                .thenCancel()
+                .verify();
     }
 }
@@ -0,0 +1,103 @@
+package com.mark.cache;
+
+import com.mark.client.ReviewsRestClient;
+import com.mark.domain.MovieInfo;
+import com.mark.domain.Review;
+import com.mark.stream.MovieInfoStreamPublisher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.time.Duration;
+
+/**
+ * Evicts cached movie infos and movie responses when movies-info-service or movies-review-service publishes a change
+ * for a movie, and forgets that a movie was missing once its movie info is published. Movie info changes are read from
+ * the shared movie info stream, so the listener and the stream endpoints hold a single upstream connection between
+ * them. Both streams are reconnected with backoff for as long as the application runs. A new movie info stream replays every change from the start, but
+ * the review stream cannot resume, so every review reconnect evicts all stored movie responses to cover the events
+ * missed meanwhile.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(value = "cache.invalidation.enabled", havingValue = "true")
+public class CacheInvalidationListener implements SmartLifecycle {
+
+    private final MovieInfoStreamPublisher movieInfoStreamPublisher;
+    private final ReviewsRestClient reviewsRestClient;
+    private final MovieInfoCache movieInfoCache;
+    private final MissingMovieInfoCache missingMovieInfoCache;
+    private final MovieResponseStore movieResponseStore;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+
+    private volatile Disposable subscriptions;
+
+    public CacheInvalidationListener(MovieInfoStreamPublisher movieInfoStreamPublisher,
+                                     ReviewsRestClient reviewsRestClient,
+                                     MovieInfoCache movieInfoCache,
+                                     MissingMovieInfoCache missingMovieInfoCache,
+                                     MovieResponseStore movieResponseStore,
+                                     @Value("${cache.invalidation.minBackoff}") Duration minBackoff,
+                                     @Value("${cache.invalidation.maxBackoff}") Duration maxBackoff) {
+        this.movieInfoStreamPublisher = movieInfoStreamPublisher;
+        this.reviewsRestClient = reviewsRestClient;
+        this.movieInfoCache = movieInfoCache;
+        this.missingMovieInfoCache = missingMovieInfoCache;
+        this.movieResponseStore = movieResponseStore;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    @Override
+    public void start() {
+        Disposable movieInfoSubscription = Flux.defer(movieInfoStreamPublisher::movieInfoStream)
+                .retryWhen(reconnectSpec("movie info"))
+                .subscribe(this::onMovieInfoChanged);
+
+        Disposable reviewSubscription = Flux.defer(reviewsRestClient::retrieveReviewStream)
+                .retryWhen(reconnectSpec("review").doBeforeRetry(retrySignal -> movieResponseStore.evictAll()))
+                .subscribe(this::onReviewChanged);
+
+        subscriptions = Disposables.composite(movieInfoSubscription, reviewSubscription);
+    }
+
+    @Override
+    public void stop() {
+        if (subscriptions != null) {
+            subscriptions.dispose();
+            subscriptions = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return subscriptions != null;
+    }
+
+    private void onMovieInfoChanged(MovieInfo movieInfo) {
+        log.debug("Movie info {} {}, evicting cached entries", movieInfo.getMovieInfoId(), movieInfo.isDeleted() ? "deleted" : "changed");
+        movieInfoCache.evict(movieInfo.getMovieInfoId());
+        missingMovieInfoCache.evict(movieInfo.getMovieInfoId());
+        movieResponseStore.evict(movieInfo.getMovieInfoId());
+    }
+
+    private void onReviewChanged(Review review) {
+        log.debug("Review {} of movie {} changed, evicting stored movie responses", review.getReviewId(), review.getMovieInfoId());
+        movieResponseStore.evict(String.valueOf(review.getMovieInfoId()));
+    }
+
+    private RetryBackoffSpec reconnectSpec(String stream) {
+        return Retry.backoff(Long.MAX_VALUE, minBackoff)
+                .maxBackoff(maxBackoff)
+                .transientErrors(true)
+                .doBeforeRetry(retrySignal -> log.warn("Reconnecting {} invalidation stream after : {}", stream, retrySignal.failure().getMessage()));
+    }
+}
@@ -0,0 +1,51 @@
+package com.mark.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Movie ids that movies-info-service answered with 404, so repeated lookups of unknown ids fail without a network call.
+ * Entries are dropped when a movie info with the id appears on the movie info stream. The short expiry bounds how long
+ * a movie created while its 404 was in flight can still be reported as missing.
+ */
+@Component
+public class MissingMovieInfoCache {
+
+    private static final String CACHE_NAME = "missingMovieInfo";
+
+    private final Cache<String, Boolean> cache;
+
+    public MissingMovieInfoCache(@Value("${cache.missingMovieInfo.maximumSize}") long maximumSize,
+                                 @Value("${cache.missingMovieInfo.expireAfterWrite}") Duration expireAfterWrite,
+                                 MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public boolean isMissing(String movieId) {
+        return cache.getIfPresent(movieId) != null;
+    }
+
+    public void markMissing(String movieId) {
+        cache.put(movieId, Boolean.TRUE);
+    }
+
+    public void evict(String movieId) {
+        cache.invalidate(movieId);
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+}
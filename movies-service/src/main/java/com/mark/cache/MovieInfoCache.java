@@ -0,0 +1,70 @@
+package com.mark.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mark.domain.MovieInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.BiFunction;
+
+/**
+ * Fresh movie infos, backed by the last validated copy of each. Once a fresh entry expires or is evicted, the validated
+ * copy is handed to the loader, which can revalidate it with the upstream instead of downloading it again.
+ */
+@Component
+public class MovieInfoCache {
+
+    private static final String CACHE_NAME = "movieInfo";
+
+    private final AsyncCache<String, MovieInfo> cache;
+    private final Cache<String, ValidatedMovieInfo> validated;
+
+    public MovieInfoCache(@Value("${cache.movieInfo.maximumSize}") long maximumSize,
+                          @Value("${cache.movieInfo.expireAfterWrite}") Duration expireAfterWrite,
+                          @Value("${cache.movieInfo.revalidateWithin}") Duration revalidateWithin,
+                          MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .buildAsync();
+        this.validated = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(revalidateWithin)
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Returns the cached MovieInfo or loads it with the given loader, which receives the last validated copy or null.
+     * Concurrent misses for the same id share one load, and a failed or empty load is not cached.
+     */
+    public Mono<MovieInfo> get(String movieId, BiFunction<String, ValidatedMovieInfo, Mono<ValidatedMovieInfo>> loader) {
+        return Mono.deferContextual(contextView -> Mono.fromFuture(
+                () -> cache.get(movieId, (key, executor) -> loader.apply(key, validated.getIfPresent(key))
+                        .doOnNext(validatedMovieInfo -> validated.put(key, validatedMovieInfo))
+                        .map(ValidatedMovieInfo::movieInfo)
+                        .contextWrite(contextView)
+                        .toFuture()), true));
+    }
+
+    /**
+     * Drops the fresh entry so the next read goes to the upstream. The validated copy is kept because revalidating it
+     * is always safe: a changed movie info no longer matches its entity tag and is sent in full.
+     */
+    public void evict(String movieId) {
+        cache.synchronous().invalidate(movieId);
+    }
+
+    public void evictAll() {
+        cache.synchronous().invalidateAll();
+        validated.invalidateAll();
+    }
+}
@@ -0,0 +1,148 @@
+package com.mark.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mark.domain.Movie;
+import com.mark.exception.MoviesInfoClientException;
+import com.mark.exception.ReviewsClientException;
+import com.mark.util.DeadlineUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Last known good Movie responses. Entries younger than the soft TTL are served as they are. Within the following
+ * stale-while-revalidate window they are served as stale while a single background refresh runs. Older entries are
+ * reloaded, and a failed reload falls back to the stored entry until the hard TTL evicts it.
+ */
+@Slf4j
+@Component
+public class MovieResponseStore {
+
+    private static final String CACHE_NAME = "movieResponse";
+
+    private final Cache<ResponseKey, StoredMovie> cache;
+    private final Set<ResponseKey> refreshing = ConcurrentHashMap.newKeySet();
+    private final Duration softTtl;
+    private final Duration staleWhileRevalidate;
+    private final Clock clock;
+    private final Counter staleCounter;
+
+    @Autowired
+    public MovieResponseStore(@Value("${cache.movieResponse.maximumSize}") long maximumSize,
+                              @Value("${cache.movieResponse.softTtl}") Duration softTtl,
+                              @Value("${cache.movieResponse.staleWhileRevalidate}") Duration staleWhileRevalidate,
+                              @Value("${cache.movieResponse.hardTtl}") Duration hardTtl,
+                              MeterRegistry meterRegistry) {
+        this(maximumSize, softTtl, staleWhileRevalidate, hardTtl, meterRegistry, Clock.systemUTC());
+    }
+
+    MovieResponseStore(long maximumSize, Duration softTtl, Duration staleWhileRevalidate, Duration hardTtl,
+                       MeterRegistry meterRegistry, Clock clock) {
+        this.softTtl = softTtl;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(hardTtl)
+                .recordStats()
+                .build();
+        this.staleCounter = Counter.builder("movies.responses.stale")
+                .description("Movie responses served from the last known good store")
+                .register(meterRegistry);
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public Mono<CachedMovie> get(String movieId, Supplier<Mono<Movie>> loader) {
+        return get(movieId, "", loader);
+    }
+
+    /**
+     * Same as {@link #get(String, Supplier)} for one representation of the movie, such as the one with a review summary
+     * instead of the review list. Each variant is stored on its own and evicted together with the others.
+     */
+    public Mono<CachedMovie> get(String movieId, String variant, Supplier<Mono<Movie>> loader) {
+        ResponseKey key = new ResponseKey(movieId, variant);
+        return Mono.defer(() -> {
+            StoredMovie stored = cache.getIfPresent(key);
+            if (stored != null) {
+                Duration age = Duration.between(stored.storedAt(), clock.instant());
+                if (age.compareTo(softTtl) <= 0) {
+                    return Mono.just(new CachedMovie(stored.movie(), false));
+                }
+                if (age.compareTo(softTtl.plus(staleWhileRevalidate)) <= 0) {
+                    refreshInBackground(key, loader);
+                    return Mono.just(serveStale(key, stored, "soft TTL passed"));
+                }
+            }
+            return load(key, loader)
+                    .map(movie -> new CachedMovie(movie, false))
+                    .onErrorResume(ex -> fallback(key, ex));
+        });
+    }
+
+    public void evict(String movieId) {
+        cache.asMap().keySet().removeIf(key -> key.movieId().equals(movieId));
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    private Mono<Movie> load(ResponseKey key, Supplier<Mono<Movie>> loader) {
+        return loader.get()
+                .doOnNext(movie -> cache.put(key, new StoredMovie(movie, clock.instant())))
+                .doOnError(MoviesInfoClientException.class, ex -> cache.invalidate(key));
+    }
+
+    private void refreshInBackground(ResponseKey key, Supplier<Mono<Movie>> loader) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        load(key, loader)
+                .contextWrite(DeadlineUtil::withoutDeadline)
+                .doFinally(signalType -> refreshing.remove(key))
+                .subscribe(movie -> log.debug("Refreshed stored movie {}", key),
+                        ex -> log.warn("Background refresh failed for movie {} : {}", key, ex.getMessage()));
+    }
+
+    /**
+     * Falls back to the stored Movie when the downstream call fails. Client errors are passed through because they
+     * describe the request, not the health of the downstream.
+     */
+    private Mono<CachedMovie> fallback(ResponseKey key, Throwable ex) {
+        StoredMovie stored = cache.getIfPresent(key);
+        if (stored == null || ex instanceof MoviesInfoClientException || ex instanceof ReviewsClientException) {
+            return Mono.error(ex);
+        }
+        return Mono.just(serveStale(key, stored, ex.getMessage()));
+    }
+
+    private CachedMovie serveStale(ResponseKey key, StoredMovie stored, String reason) {
+        log.info("Serving stale movie {} stored at {} : {}", key, stored.storedAt(), reason);
+        staleCounter.increment();
+        return new CachedMovie(stored.movie(), true);
+    }
+
+    private record ResponseKey(String movieId, String variant) {
+    }
+
+    private record StoredMovie(Movie movie, Instant storedAt) {
+    }
+
+    public record CachedMovie(Movie movie, boolean stale) {
+    }
+}
@@ -0,0 +1,63 @@
+package com.mark.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+@Component
+@RequiredArgsConstructor
+public class RequestCoalescer {
+
+    private final Map<String, Flux<?>> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public <T> Mono<T> coalesce(String name, String key, Supplier<Mono<T>> supplier) {
+        return coalesceMany(name, key, () -> supplier.get().flux()).singleOrEmpty();
+    }
+
+    /**
+     * Concurrent callers for the same name and key share one upstream subscription. The upstream is only cancelled once
+     * every subscriber has cancelled, and the entry is dropped as soon as the upstream terminates.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Flux<T> coalesceMany(String name, String key, Supplier<Flux<T>> supplier) {
+        return Flux.defer(() -> {
+            AtomicBoolean created = new AtomicBoolean();
+            Flux<T> shared = (Flux<T>) inFlight.computeIfAbsent(name + ":" + key, inFlightKey -> {
+                created.set(true);
+                return share(inFlightKey, supplier);
+            });
+
+            if (!created.get()) {
+                coalescedCounter(name).increment();
+            }
+            return shared;
+        });
+    }
+
+    private <T> Flux<T> share(String inFlightKey, Supplier<Flux<T>> supplier) {
+        AtomicReference<Flux<T>> self = new AtomicReference<>();
+        Flux<T> shared = Flux.defer(supplier)
+                .doFinally(signalType -> inFlight.remove(inFlightKey, self.get()))
+                .replay()
+                .refCount();
+        self.set(shared);
+        return shared;
+    }
+
+    private Counter coalescedCounter(String name) {
+        return Counter.builder("movies.requests.coalesced")
+                .description("Downstream calls served by an already in-flight request")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+}
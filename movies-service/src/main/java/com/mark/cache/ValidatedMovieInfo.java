@@ -0,0 +1,9 @@
+package com.mark.cache;
+
+import com.mark.domain.MovieInfo;
+
+/**
+ * A MovieInfo together with the entity tag it was served with, which is null when the upstream sent none.
+ */
+public record ValidatedMovieInfo(MovieInfo movieInfo, String etag) {
+}
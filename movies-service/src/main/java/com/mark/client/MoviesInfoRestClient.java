@@ -1,69 +1,236 @@
 package com.mark.client;
 
+import com.mark.cache.MissingMovieInfoCache;
+import com.mark.cache.MovieInfoCache;
+import com.mark.cache.RequestCoalescer;
+import com.mark.cache.ValidatedMovieInfo;
+import com.mark.config.RestClientProperties;
+import com.mark.config.WebClientConfig;
 import com.mark.domain.MovieInfo;
 import com.mark.exception.MoviesInfoClientException;
 import com.mark.exception.MoviesInfoServerException;
+import com.mark.stream.NdjsonFrames;
+import com.mark.util.ClientMetrics;
+import com.mark.util.ConcurrencyLimiter;
+import com.mark.util.DeadlineUtil;
+import com.mark.util.InstanceLoadBalancer;
+import com.mark.util.RequestHedger;
+import com.mark.util.RetryBudget;
 import com.mark.util.RetryUtil;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import reactor.netty.http.client.HttpClientRequest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class MoviesInfoRestClient {
 
+    private static final String CLIENT_NAME = "moviesInfo";
+
+    public static final String STREAM_EPOCH_HEADER = "X-Stream-Epoch";
+
     @Value("${restClient.moviesInfoUrl}")
     private String moviesInfoUrl;
 
+    @Qualifier("moviesInfoWebClient")
     private final WebClient webClient;
+    private final MovieInfoCache movieInfoCache;
+    private final MissingMovieInfoCache missingMovieInfoCache;
+    private final RequestCoalescer requestCoalescer;
+    private final RestClientProperties restClientProperties;
+    private final RetryBudget retryBudget;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final RequestHedger requestHedger;
+    private final ClientMetrics clientMetrics;
+    @Qualifier("moviesInfoConcurrencyLimiter")
+    private final ConcurrencyLimiter concurrencyLimiter;
 
-    public Mono<MovieInfo> retrieveMovieInfo(String movieId) {
-        return webClient
-                .get()
-                .uri(moviesInfoUrl + "/{id}", movieId)
-                .retrieve()
-                .onStatus(HttpStatusCode::is4xxClientError, clientResponse -> handle4xxError(clientResponse, movieId))
-                .onStatus(HttpStatusCode::is5xxServerError, this::handle5xxError)
-                .bodyToMono(MovieInfo.class)
-//                .retry(3);
-                .retryWhen(RetryUtil.retrySpec());
+    /**
+     * Retrieves the movie info, or with {@code fields} only the selected fields of it. Partial movie infos skip the
+     * movie info cache, which only holds complete ones. Ids answered with 404 fail right away until they expire from the
+     * missing movie info cache or show up on the movie info stream.
+     */
+    public Mono<MovieInfo> retrieveMovieInfo(String movieId, List<String> fields) {
+        return Mono.defer(() -> {
+            if (missingMovieInfoCache.isMissing(movieId)) {
+                return Mono.error(notFound(movieId));
+            }
+
+            Mono<MovieInfo> movieInfo = fields.isEmpty()
+                    ? movieInfoCache.get(movieId, this::fetchMovieInfo)
+                    : requestCoalescer.coalesce("movieInfo", movieId + "?fields=" + String.join(",", fields), () -> requestMovieInfo(movieId, fields, null))
+                            .map(ValidatedMovieInfo::movieInfo);
+            return movieInfo.doOnError(MoviesInfoClientException.class, ex -> {
+                if (ex.getStatusCode() == HttpStatus.NOT_FOUND.value()) {
+                    missingMovieInfoCache.markMissing(movieId);
+                }
+            });
+        }).transform(DeadlineUtil::bound);
+    }
+
+    private Mono<ValidatedMovieInfo> fetchMovieInfo(String movieId, ValidatedMovieInfo cached) {
+        return requestCoalescer.coalesce("movieInfo", movieId, () -> requestMovieInfo(movieId, List.of(), cached));
+    }
+
+    /**
+     * Fetches a movie info, or revalidates the cached copy when it has an entity tag. A 304 answer carries no body, so
+     * the cached copy is reused. The deadline bounds the hedge, the retries and their backoff here, since the movie info
+     * cache lets the load outlive the caller that started it.
+     */
+    private Mono<ValidatedMovieInfo> requestMovieInfo(String movieId, List<String> fields, ValidatedMovieInfo cached) {
+        return requestHedger.hedge(() -> webClient
+                        .get()
+                        .uri(fields.isEmpty() ? moviesInfoUrl + "/{id}" : moviesInfoUrl + "/{id}?fields={fields}", movieId, String.join(",", fields))
+                        .headers(headers -> {
+                            if (cached != null && cached.etag() != null) {
+                                headers.setIfNoneMatch(cached.etag());
+                            }
+                        })
+                        .retrieve()
+                        .onStatus(HttpStatusCode::is4xxClientError, clientResponse -> handle4xxError(clientResponse, movieId))
+                        .onStatus(HttpStatusCode::is5xxServerError, this::handle5xxError)
+                        .toEntity(MovieInfo.class)
+                        .flatMap(entity -> entity.getStatusCode() == HttpStatus.NOT_MODIFIED && cached != null
+                                ? Mono.just(cached)
+                                : Mono.justOrEmpty(entity.getBody()).map(movieInfo -> new ValidatedMovieInfo(movieInfo, entity.getHeaders().getETag()))))
+                .transformDeferred(BulkheadOperator.of(bulkheadRegistry.bulkhead(CLIENT_NAME)))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(CLIENT_NAME)))
+                .transformDeferred(concurrencyLimiter::limit)
+                .retryWhen(retrySpec())
+                .doOnError(ex -> clientMetrics.recordError(CLIENT_NAME, ex))
+                .doOnSubscribe(subscription -> retryBudget.recordRequest())
+                .transform(DeadlineUtil::bound);
     }
 
     private Mono<Throwable> handle4xxError(ClientResponse response, String movieId) {
         log.info("Status code is : {}", response.statusCode().value());
 
         if (response.statusCode().equals(HttpStatus.NOT_FOUND)) {
-            return Mono.error(new MoviesInfoClientException("MovieInfo not found for id: " + movieId, response.statusCode().value()));
+            return Mono.error(notFound(movieId));
         }
 
         return response.bodyToMono(String.class)
                 .flatMap(errorBody -> Mono.error(new MoviesInfoClientException(errorBody, response.statusCode().value())));
     }
 
+    private static MoviesInfoClientException notFound(String movieId) {
+        return new MoviesInfoClientException("MovieInfo not found for id: " + movieId, HttpStatus.NOT_FOUND.value());
+    }
+
     private Mono<Throwable> handle5xxError(ClientResponse response) {
         log.info("Status code is : {}", response.statusCode().value());
 
-        return response.bodyToMono(String.class)
-                .flatMap(errorBody -> Mono.error(new MoviesInfoServerException("Server Exception in MoviesInfoService " + errorBody)));
+        return DeadlineUtil.exceeded(response, "MoviesInfoService")
+                .switchIfEmpty(response.bodyToMono(String.class)
+                        .flatMap(errorBody -> Mono.error(new MoviesInfoServerException("Server Exception in MoviesInfoService " + errorBody))));
     }
 
-    public Flux<MovieInfo> retrieveMovieInfoStream() {
+    public Flux<MovieInfo> retrieveMovieInfos(List<String> movieIds) {
         return webClient
                 .get()
-                .uri(moviesInfoUrl + "/stream")
+                .uri(moviesInfoUrl + "?ids={ids}", String.join(",", movieIds))
                 .retrieve()
                 .onStatus(HttpStatusCode::is4xxClientError, response -> response.bodyToMono(String.class)
                         .flatMap(errorBody -> Mono.error(new MoviesInfoClientException(errorBody, response.statusCode().value()))))
                 .onStatus(HttpStatusCode::is5xxServerError, this::handle5xxError)
                 .bodyToFlux(MovieInfo.class)
-                .retryWhen(RetryUtil.retrySpec());
+                .transformDeferred(BulkheadOperator.of(bulkheadRegistry.bulkhead(CLIENT_NAME)))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(CLIENT_NAME)))
+                .transformDeferred(concurrencyLimiter::limit)
+                .retryWhen(retrySpec())
+                .doOnError(ex -> clientMetrics.recordError(CLIENT_NAME, ex))
+                .doOnSubscribe(subscription -> retryBudget.recordRequest())
+                .transform(DeadlineUtil::bound);
+    }
+
+    /**
+     * Streams movie infos from the upstream and resumes after the last delivered event when the connection drops,
+     * so a reconnect neither replays the whole catalog nor delivers duplicates. The offset only counts events of one
+     * upstream sink, so when the stream comes back with another epoch, after a restart or from another instance, the
+     * upstream replays its history from the start and the count starts over.
+     */
+    public Flux<MovieInfo> retrieveMovieInfoStream() {
+        MediaType[] accept = restClientProperties.getMoviesInfo().isBinaryCodec()
+                ? new MediaType[]{WebClientConfig.APPLICATION_STREAM_SMILE, MediaType.APPLICATION_NDJSON}
+                : new MediaType[]{MediaType.APPLICATION_NDJSON};
+        return resumableStream(MovieInfo.class, Function.identity(), accept);
+    }
+
+    /**
+     * Streams the upstream NDJSON lines without decoding them, with the same resume behaviour as
+     * {@link #retrieveMovieInfoStream()}.
+     */
+    public Flux<byte[]> retrieveMovieInfoStreamFrames(int maxFrameSize) {
+        return resumableStream(DataBuffer.class, body -> NdjsonFrames.split(body, maxFrameSize), MediaType.APPLICATION_NDJSON);
+    }
+
+    private <B, T> Flux<T> resumableStream(Class<B> bodyType, Function<Flux<B>, Flux<T>> decode, MediaType... accept) {
+        return Flux.defer(() -> {
+                    AtomicLong delivered = new AtomicLong();
+                    AtomicReference<String> epoch = new AtomicReference<>();
+                    return Flux.defer(() -> requestMovieInfoStream(delivered.get(), epoch.get(), accept)
+                                    .toEntityFlux(bodyType)
+                                    .flatMapMany(entity -> {
+                                        String streamEpoch = entity.getHeaders().getFirst(STREAM_EPOCH_HEADER);
+                                        if (!Objects.equals(streamEpoch, epoch.get())) {
+                                            if (epoch.get() != null) {
+                                                log.info("Movie info stream epoch changed from {} to {}, counting from the start", epoch.get(), streamEpoch);
+                                            }
+                                            epoch.set(streamEpoch);
+                                            delivered.set(0);
+                                        }
+                                        return decode.apply(entity.getBody());
+                                    }))
+                            .onErrorMap(ex -> !(ex instanceof MoviesInfoClientException || ex instanceof MoviesInfoServerException),
+                                    ex -> new MoviesInfoServerException("Movie info stream interrupted : " + ex.getMessage()))
+                            .concatWith(Mono.error(() -> new MoviesInfoServerException("Movie info stream closed by upstream")))
+                            .doOnNext(event -> delivered.incrementAndGet())
+                            .retryWhen(RetryUtil.reconnectSpec(restClientProperties.getMoviesInfo().getRetry(), clientMetrics.retries(CLIENT_NAME))
+                                    .doBeforeRetry(retrySignal -> log.info("Resuming movie info stream from offset {}", delivered.get())));
+                })
+                .doOnError(ex -> clientMetrics.recordError(CLIENT_NAME, ex))
+                .contextWrite(DeadlineUtil::withoutDeadline);
+    }
+
+    private WebClient.ResponseSpec requestMovieInfoStream(long offset, String epoch, MediaType... accept) {
+        return webClient
+                .get()
+                .uri(epoch == null ? moviesInfoUrl + "/stream?offset={offset}" : moviesInfoUrl + "/stream?offset={offset}&epoch={epoch}", offset, epoch)
+                .accept(accept)
+                .attribute(InstanceLoadBalancer.STREAM_ATTRIBUTE, true)
+                .httpRequest(httpRequest -> httpRequest.<HttpClientRequest>getNativeRequest().responseTimeout(Duration.ZERO))
+                .retrieve()
+                .onStatus(HttpStatusCode::is4xxClientError, response -> response.bodyToMono(String.class)
+                        .flatMap(errorBody -> Mono.error(new MoviesInfoClientException(errorBody, response.statusCode().value()))))
+                .onStatus(HttpStatusCode::is5xxServerError, this::handle5xxError);
+    }
+
+    private Retry retrySpec() {
+        return RetryUtil.retrySpec(restClientProperties.getMoviesInfo().getRetry(), retryBudget, clientMetrics.retries(CLIENT_NAME));
     }
 }
@@ -1,45 +1,191 @@
 package com.mark.client;
 
+import com.mark.cache.RequestCoalescer;
+import com.mark.config.RestClientProperties;
+import com.mark.config.WebClientConfig;
 import com.mark.domain.Review;
+import com.mark.domain.ReviewPage;
+import com.mark.domain.ReviewSummary;
 import com.mark.exception.ReviewsClientException;
 import com.mark.exception.ReviewsServerException;
+import com.mark.util.ClientMetrics;
+import com.mark.util.ConcurrencyLimiter;
+import com.mark.util.DeadlineUtil;
+import com.mark.util.InstanceLoadBalancer;
+import com.mark.util.RetryBudget;
 import com.mark.util.RetryUtil;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class ReviewsRestClient {
 
+    private static final String CLIENT_NAME = "reviews";
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Value("${restClient.reviewsUrl}")
     private String reviewsUrl;
 
+    @Qualifier("reviewsWebClient")
     private final WebClient webClient;
+    private final RequestCoalescer requestCoalescer;
+    private final RestClientProperties restClientProperties;
+    private final RetryBudget retryBudget;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final ClientMetrics clientMetrics;
+    @Qualifier("reviewsConcurrencyLimiter")
+    private final ConcurrencyLimiter concurrencyLimiter;
 
     public Flux<Review> retrieveReviews(String movieId) {
-        String url = UriComponentsBuilder.fromHttpUrl(reviewsUrl)
-                .queryParam("movieInfoId", movieId)
-                .buildAndExpand()
-                .toUriString();
+        return requestCoalescer.coalesceMany("reviews", movieId, () -> requestReviews(movieId))
+                .transform(DeadlineUtil::bound);
+    }
+
+    /**
+     * Streams the reviews of the movie as they are decoded. Unlike {@link #retrieveReviews(String)} the call is not
+     * coalesced, since sharing it replays every review to late subscribers and so holds all of them in memory. A
+     * streaming media type is requested so movies-review-service writes each review as it is read.
+     */
+    public Flux<Review> streamReviews(String movieId) {
+        return requestReviews(movieId, streamingMediaTypes())
+                .transform(DeadlineUtil::bound);
+    }
+
+    private Flux<Review> requestReviews(String movieId, MediaType... accept) {
+        WebClient.RequestHeadersSpec<?> request = webClient
+                .get()
+                .uri(reviewsUrl + "?movieInfoId={movieInfoId}", movieId);
+
+        return (accept.length == 0 ? request : request.accept(accept))
+                .retrieve()
+                .onStatus(HttpStatusCode::is4xxClientError, clientResponse -> handle4xxError(clientResponse, movieId))
+                .onStatus(HttpStatusCode::is5xxServerError, this::handle5xxError)
+                .bodyToFlux(Review.class)
+                .transformDeferred(BulkheadOperator.of(bulkheadRegistry.bulkhead(CLIENT_NAME)))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(CLIENT_NAME)))
+                .transformDeferred(concurrencyLimiter::limit)
+                .retryWhen(retrySpec())
+                .doOnError(ex -> clientMetrics.recordError(CLIENT_NAME, ex))
+                .doOnSubscribe(subscription -> retryBudget.recordRequest());
+    }
+
+    /**
+     * Retrieves at most {@code limit} reviews starting after the given cursor. Paging is applied by movies-review-service,
+     * so only one page is ever held in memory.
+     */
+    public Mono<ReviewPage> retrieveReviews(String movieId, int limit, String cursor) {
+        return requestCoalescer.coalesce("reviewPage", movieId + ":" + limit + ":" + cursor, () -> requestReviewPage(movieId, limit, cursor))
+                .transform(DeadlineUtil::bound);
+    }
+
+    private Mono<ReviewPage> requestReviewPage(String movieId, int limit, String cursor) {
+        WebClient.RequestHeadersSpec<?> request = cursor == null
+                ? webClient.get().uri(reviewsUrl + "?movieInfoId={movieInfoId}&limit={limit}", movieId, limit)
+                : webClient.get().uri(reviewsUrl + "?movieInfoId={movieInfoId}&limit={limit}&cursor={cursor}", movieId, limit, cursor);
+
+        return request
+                .retrieve()
+                .onStatus(HttpStatusCode::is4xxClientError, clientResponse -> handle4xxError(clientResponse, movieId))
+                .onStatus(HttpStatusCode::is5xxServerError, this::handle5xxError)
+                .toEntityList(Review.class)
+                .map(entity -> new ReviewPage(entity.getBody() == null ? List.of() : entity.getBody(),
+                        entity.getHeaders().getFirst(NEXT_CURSOR_HEADER)))
+                .transformDeferred(BulkheadOperator.of(bulkheadRegistry.bulkhead(CLIENT_NAME)))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(CLIENT_NAME)))
+                .transformDeferred(concurrencyLimiter::limit)
+                .retryWhen(retrySpec())
+                .doOnError(ex -> clientMetrics.recordError(CLIENT_NAME, ex))
+                .doOnSubscribe(subscription -> retryBudget.recordRequest());
+    }
 
+    public Flux<Review> retrieveReviews(List<String> movieIds) {
         return webClient
                 .get()
-                .uri(url)
+                .uri(reviewsUrl + "?movieInfoIds={movieInfoIds}", String.join(",", movieIds))
+                .retrieve()
+                .onStatus(HttpStatusCode::is4xxClientError, clientResponse -> handle4xxError(clientResponse, String.join(",", movieIds)))
+                .onStatus(HttpStatusCode::is5xxServerError, this::handle5xxError)
+                .bodyToFlux(Review.class)
+                .transformDeferred(BulkheadOperator.of(bulkheadRegistry.bulkhead(CLIENT_NAME)))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(CLIENT_NAME)))
+                .transformDeferred(concurrencyLimiter::limit)
+                .retryWhen(retrySpec())
+                .doOnError(ex -> clientMetrics.recordError(CLIENT_NAME, ex))
+                .doOnSubscribe(subscription -> retryBudget.recordRequest())
+                .transform(DeadlineUtil::bound);
+    }
+
+    public Mono<ReviewSummary> retrieveReviewSummary(String movieId) {
+        return requestCoalescer.coalesce("reviewSummary", movieId, () -> requestReviewSummary(movieId))
+                .transform(DeadlineUtil::bound);
+    }
+
+    private Mono<ReviewSummary> requestReviewSummary(String movieId) {
+        return webClient
+                .get()
+                .uri(reviewsUrl + "/summary?movieInfoId={movieInfoId}", movieId)
                 .retrieve()
                 .onStatus(HttpStatusCode::is4xxClientError, clientResponse -> handle4xxError(clientResponse, movieId))
                 .onStatus(HttpStatusCode::is5xxServerError, this::handle5xxError)
+                .bodyToMono(ReviewSummary.class)
+                .transformDeferred(BulkheadOperator.of(bulkheadRegistry.bulkhead(CLIENT_NAME)))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(CLIENT_NAME)))
+                .transformDeferred(concurrencyLimiter::limit)
+                .retryWhen(retrySpec())
+                .doOnError(ex -> clientMetrics.recordError(CLIENT_NAME, ex))
+                .doOnSubscribe(subscription -> retryBudget.recordRequest());
+    }
+
+    /**
+     * Streams reviews as they are added or updated. The connection is meant to stay open, so it has neither a response
+     * timeout nor a deadline, and its end is reported as a server error for the caller to reconnect.
+     */
+    public Flux<Review> retrieveReviewStream() {
+        return webClient
+                .get()
+                .uri(reviewsUrl + "/stream")
+                .accept(streamingMediaTypes())
+                .attribute(InstanceLoadBalancer.STREAM_ATTRIBUTE, true)
+                .httpRequest(httpRequest -> httpRequest.<HttpClientRequest>getNativeRequest().responseTimeout(Duration.ZERO))
+                .retrieve()
+                .onStatus(HttpStatusCode::is4xxClientError, response -> response.bodyToMono(String.class)
+                        .flatMap(errorBody -> Mono.error(new ReviewsClientException(errorBody))))
+                .onStatus(HttpStatusCode::is5xxServerError, this::handle5xxError)
                 .bodyToFlux(Review.class)
-                .retryWhen(RetryUtil.retrySpec());
+                .onErrorMap(ex -> !(ex instanceof ReviewsClientException || ex instanceof ReviewsServerException),
+                        ex -> new ReviewsServerException("Review stream interrupted : " + ex.getMessage()))
+                .concatWith(Mono.error(() -> new ReviewsServerException("Review stream closed by upstream")))
+                .doOnError(ex -> clientMetrics.recordError(CLIENT_NAME, ex))
+                .contextWrite(DeadlineUtil::withoutDeadline);
+    }
+
+    private MediaType[] streamingMediaTypes() {
+        return restClientProperties.getReviews().isBinaryCodec()
+                ? new MediaType[]{WebClientConfig.APPLICATION_STREAM_SMILE, MediaType.APPLICATION_NDJSON}
+                : new MediaType[]{MediaType.APPLICATION_NDJSON};
     }
 
     private Mono<Throwable> handle4xxError(ClientResponse response, String movieId) {
@@ -56,7 +202,12 @@ public class ReviewsRestClient {
     private Mono<Throwable> handle5xxError(ClientResponse response) {
         log.info("Status code is : {}", response.statusCode().value());
 
-        return response.bodyToMono(String.class)
-                .flatMap(errorBody -> Mono.error(new ReviewsServerException("Server Exception in ReviewsService " + errorBody)));
+        return DeadlineUtil.exceeded(response, "ReviewsService")
+                .switchIfEmpty(response.bodyToMono(String.class)
+                        .flatMap(errorBody -> Mono.error(new ReviewsServerException("Server Exception in ReviewsService " + errorBody))));
+    }
+
+    private Retry retrySpec() {
+        return RetryUtil.retrySpec(restClientProperties.getReviews().getRetry(), retryBudget, clientMetrics.retries(CLIENT_NAME));
     }
 }
@@ -0,0 +1,74 @@
+package com.mark.config;
+
+import com.mark.util.ConcurrencyLimiter;
+import com.mark.util.InstanceLoadBalancer;
+import com.mark.util.RequestHedger;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.core.registry.EntryAddedEvent;
+import io.github.resilience4j.core.registry.EntryRemovedEvent;
+import io.github.resilience4j.core.registry.EntryReplacedEvent;
+import io.github.resilience4j.core.registry.RegistryEventConsumer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Slf4j
+@Configuration
+public class ResilienceConfig {
+
+    @Bean
+    public RequestHedger moviesInfoRequestHedger(RestClientProperties properties, MeterRegistry meterRegistry) {
+        return new RequestHedger("moviesInfo", properties.getMoviesInfo().getHedging(), meterRegistry);
+    }
+
+    @Bean
+    public ConcurrencyLimiter moviesInfoConcurrencyLimiter(RestClientProperties properties, MeterRegistry meterRegistry) {
+        return new ConcurrencyLimiter("moviesInfo", properties.getMoviesInfo().getConcurrencyLimit(), meterRegistry);
+    }
+
+    @Bean
+    public ConcurrencyLimiter reviewsConcurrencyLimiter(RestClientProperties properties, MeterRegistry meterRegistry) {
+        return new ConcurrencyLimiter("reviews", properties.getReviews().getConcurrencyLimit(), meterRegistry);
+    }
+
+    @Bean
+    public InstanceLoadBalancer moviesInfoLoadBalancer(RestClientProperties properties, MeterRegistry meterRegistry) {
+        return new InstanceLoadBalancer("moviesInfo", properties.getMoviesInfo().getLoadBalancer(), meterRegistry);
+    }
+
+    @Bean
+    public InstanceLoadBalancer reviewsLoadBalancer(RestClientProperties properties, MeterRegistry meterRegistry) {
+        return new InstanceLoadBalancer("reviews", properties.getReviews().getLoadBalancer(), meterRegistry);
+    }
+
+    @Bean
+    public RegistryEventConsumer<CircuitBreaker> circuitBreakerTransitionConsumer(MeterRegistry meterRegistry) {
+        return new RegistryEventConsumer<>() {
+            @Override
+            public void onEntryAddedEvent(EntryAddedEvent<CircuitBreaker> entryAddedEvent) {
+                CircuitBreaker circuitBreaker = entryAddedEvent.getAddedEntry();
+                circuitBreaker.getEventPublisher().onStateTransition(event -> {
+                    log.warn("CircuitBreaker {} transitioned {}", event.getCircuitBreakerName(), event.getStateTransition());
+
+                    Counter.builder("movies.circuitbreaker.transitions")
+                            .description("CircuitBreaker state transitions")
+                            .tag("name", event.getCircuitBreakerName())
+                            .tag("from", event.getStateTransition().getFromState().name())
+                            .tag("to", event.getStateTransition().getToState().name())
+                            .register(meterRegistry)
+                            .increment();
+                });
+            }
+
+            @Override
+            public void onEntryRemovedEvent(EntryRemovedEvent<CircuitBreaker> entryRemoveEvent) {
+            }
+
+            @Override
+            public void onEntryReplacedEvent(EntryReplacedEvent<CircuitBreaker> entryReplacedEvent) {
+            }
+        };
+    }
+}
@@ -0,0 +1,119 @@
+package com.mark.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "rest-client")
+public class RestClientProperties {
+
+    private Downstream moviesInfo = new Downstream();
+    private Downstream reviews = new Downstream();
+    private RetryBudget retryBudget = new RetryBudget();
+
+    @Getter
+    @Setter
+    public static class Downstream {
+        private Duration connectTimeout = Duration.ofSeconds(2);
+        private Duration responseTimeout = Duration.ofSeconds(5);
+        private Pool pool = new Pool();
+        private Retry retry = new Retry();
+        private Hedging hedging = new Hedging();
+        private ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+        private LoadBalancer loadBalancer = new LoadBalancer();
+        private boolean binaryCodec = true;
+    }
+
+    @Getter
+    @Setter
+    public static class Pool {
+        private int maxConnections = 100;
+        private int pendingAcquireMaxCount = 500;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictInBackground = Duration.ofSeconds(30);
+    }
+
+    @Getter
+    @Setter
+    public static class Retry {
+        private long maxAttempts = 3;
+        private Duration minBackoff = Duration.ofMillis(100);
+        private Duration maxBackoff = Duration.ofSeconds(2);
+        private double jitter = 0.5;
+    }
+
+    @Getter
+    @Setter
+    public static class RetryBudget {
+        /**
+         * Tokens deposited per request; a retry costs one token, so retries stay below this share of traffic.
+         */
+        private double ratio = 0.1;
+        private double maxTokens = 10;
+    }
+
+    @Getter
+    @Setter
+    public static class Hedging {
+        private boolean enabled = false;
+        /**
+         * Latency percentile after which a second, identical request is sent.
+         */
+        private double percentile = 0.95;
+        private Duration minDelay = Duration.ofMillis(20);
+        private Duration maxDelay = Duration.ofSeconds(1);
+        /**
+         * Maximum share of requests that may be hedged.
+         */
+        private double maxRatio = 0.05;
+        private double maxTokens = 10;
+    }
+
+    @Getter
+    @Setter
+    public static class ConcurrencyLimit {
+        private boolean enabled = true;
+        private int initialLimit = 20;
+        private int minLimit = 5;
+        private int maxLimit = 200;
+        /**
+         * Factor applied to the limit when a call is slow or fails because the downstream is overloaded.
+         */
+        private double backoffRatio = 0.9;
+        /**
+         * A call counts as slow when its round trip exceeds the average round trip by this factor.
+         */
+        private double rttTolerance = 2.0;
+        /**
+         * Weight of the newest sample in the exponentially weighted average round trip.
+         */
+        private double rttSmoothing = 0.05;
+    }
+
+    @Getter
+    @Setter
+    public static class LoadBalancer {
+        /**
+         * Base URIs (scheme, host and port) of the downstream instances. The host of the configured URL is replaced by
+         * one of them on every request; when empty, requests go to the configured URL as is.
+         */
+        private List<URI> instances = new ArrayList<>();
+        /**
+         * Consecutive failed calls after which an instance is taken out of rotation.
+         */
+        private int ejectAfterFailures = 3;
+        /**
+         * Time an ejected instance stays out of rotation before a single probe call may re-admit it.
+         */
+        private Duration ejectionTime = Duration.ofSeconds(30);
+    }
+}
@@ -1,14 +1,97 @@
 package com.mark.config;
 
+import com.mark.util.DeadlineUtil;
+import com.mark.util.InstanceLoadBalancer;
+import io.micrometer.common.KeyValues;
+import io.netty.channel.ChannelOption;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ClientRequestObservationContext;
+import org.springframework.web.reactive.function.client.DefaultClientRequestObservationConvention;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.List;
 
 @Configuration
+@EnableConfigurationProperties(RestClientProperties.class)
 public class WebClientConfig {
 
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+    public static final MediaType APPLICATION_STREAM_SMILE = new MediaType("application", "stream+x-jackson-smile");
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider moviesInfoConnectionProvider(RestClientProperties properties) {
+        return connectionProvider("moviesInfo", properties.getMoviesInfo().getPool());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider reviewsConnectionProvider(RestClientProperties properties) {
+        return connectionProvider("reviews", properties.getReviews().getPool());
+    }
+
     @Bean
-    public WebClient webClient(WebClient.Builder builder) {
-        return builder.build();
+    public WebClient moviesInfoWebClient(WebClient.Builder builder, ConnectionProvider moviesInfoConnectionProvider,
+                                         InstanceLoadBalancer moviesInfoLoadBalancer, RestClientProperties properties) {
+        return webClient(builder, "moviesInfo", moviesInfoConnectionProvider, moviesInfoLoadBalancer, properties.getMoviesInfo());
+    }
+
+    @Bean
+    public WebClient reviewsWebClient(WebClient.Builder builder, ConnectionProvider reviewsConnectionProvider,
+                                      InstanceLoadBalancer reviewsLoadBalancer, RestClientProperties properties) {
+        return webClient(builder, "reviews", reviewsConnectionProvider, reviewsLoadBalancer, properties.getReviews());
+    }
+
+    private ConnectionProvider connectionProvider(String name, RestClientProperties.Pool pool) {
+        return ConnectionProvider.builder(name)
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getEvictInBackground())
+                .metrics(true)
+                .build();
+    }
+
+    private WebClient webClient(WebClient.Builder builder, String downstream, ConnectionProvider connectionProvider,
+                                InstanceLoadBalancer loadBalancer, RestClientProperties.Downstream properties) {
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeout().toMillis())
+                .responseTimeout(properties.getResponseTimeout())
+                .metrics(true, uri -> downstream);
+
+        List<MediaType> accept = properties.isBinaryCodec()
+                ? List.of(APPLICATION_SMILE, MediaType.APPLICATION_JSON)
+                : List.of(MediaType.APPLICATION_JSON);
+
+        return builder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .observationConvention(new DownstreamObservationConvention(downstream))
+                .defaultHeaders(headers -> headers.setAccept(accept))
+                .filter(DeadlineUtil.propagateDeadline())
+                .filter(loadBalancer)
+                .build();
+    }
+
+    /**
+     * Tags http.client.requests with the downstream service, since the client.name tag only carries the host.
+     */
+    private static class DownstreamObservationConvention extends DefaultClientRequestObservationConvention {
+
+        private final String downstream;
+
+        DownstreamObservationConvention(String downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public KeyValues getLowCardinalityKeyValues(ClientRequestObservationContext context) {
+            return super.getLowCardinalityKeyValues(context).and("downstream", downstream);
+        }
     }
 }
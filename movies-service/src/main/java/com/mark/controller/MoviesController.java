@@ -1,38 +1,264 @@
 package com.mark.controller;
 
+import com.mark.cache.MovieResponseStore;
 import com.mark.client.MoviesInfoRestClient;
 import com.mark.client.ReviewsRestClient;
 import com.mark.domain.Movie;
 import com.mark.domain.MovieInfo;
+import com.mark.domain.Review;
+import com.mark.domain.ReviewPage;
+import com.mark.domain.ReviewSummary;
+import com.mark.exception.ConcurrencyLimitExceededException;
+import com.mark.exception.ReviewsUnavailableException;
+import com.mark.stream.MovieInfoStreamPublisher;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import lombok.RequiredArgsConstructor;
+import com.mark.util.DeadlineUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebInputException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+@Slf4j
 @RestController
 @RequestMapping("/v1/movies")
 @RequiredArgsConstructor
 public class MoviesController {
 
+    public static final String STALE_HEADER = "X-Response-Stale";
+    public static final String REVIEWS_FULL = "full";
+    public static final String REVIEWS_SUMMARY = "summary";
+    public static final String FIELD_REVIEWS = "reviews";
+    private static final String REVIEWS_NONE = "none";
+
     private final MoviesInfoRestClient moviesInfoRestClient;
     private final ReviewsRestClient reviewsRestClient;
+    private final MovieInfoStreamPublisher movieInfoStreamPublisher;
+    private final MovieResponseStore movieResponseStore;
+
+    @Value("${stream.enrich.concurrency}")
+    private int enrichConcurrency;
+
+    @Value("${stream.enrich.prefetch}")
+    private int enrichPrefetch;
+
+    @Value("${stream.enrich.ordered}")
+    private boolean enrichOrdered;
+
+    @Value("${reviews.page.defaultLimit}")
+    private int reviewsDefaultLimit;
 
+    @Value("${reviews.page.maxLimit}")
+    private int reviewsMaxLimit;
+
+    @Value("${movies.bulk.maxIds}")
+    private int bulkMaxIds;
+
+    /**
+     * Returns the movie with one page of its reviews, or with {@code reviews=summary} only the review count, average
+     * rating and rating histogram computed by movies-review-service. The page holds at most {@code limit} reviews, and
+     * the next page is requested by passing the returned {@code nextReviewCursor} as {@code cursor}.
+     * <p>
+     * {@code fields} selects a partial response: {@code reviews} includes the reviews, any other name is a movie info
+     * field that movies-info-service projects. Without {@code reviews} movies-review-service is not called, and without
+     * movie info fields the whole movie info is returned.
+     */
     @GetMapping("/{id}")
-    public Mono<Movie> retrieveMovieById(@PathVariable("id") String movieId) {
-        return moviesInfoRestClient.retrieveMovieInfo(movieId)
-                .flatMap(movieInfo ->
-                        reviewsRestClient.retrieveReviews(movieId)
-                                .collectList()
-                                .map(reviews -> Movie.builder().movieInfo(movieInfo).reviewList(reviews).build())
-                );
+    public Mono<ResponseEntity<Movie>> retrieveMovieById(@PathVariable("id") String movieId,
+                                                         @RequestParam(value = "reviews", defaultValue = REVIEWS_FULL) String reviews,
+                                                         @RequestParam(value = "limit", required = false) Integer limit,
+                                                         @RequestParam(value = "cursor", required = false) String cursor,
+                                                         @RequestParam(value = "fields", required = false) List<String> fields) {
+        if (limit != null && limit < 1) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        int pageLimit = limit == null ? reviewsDefaultLimit : Math.min(limit, reviewsMaxLimit);
+        List<String> movieInfoFields = fields == null
+                ? List.of()
+                : fields.stream().filter(field -> !FIELD_REVIEWS.equals(field)).distinct().sorted().toList();
+
+        if (fields != null && !fields.contains(FIELD_REVIEWS)) {
+            return retrieveStoredMovie(movieId, variant(REVIEWS_NONE, movieInfoFields),
+                    () -> moviesInfoRestClient.retrieveMovieInfo(movieId, movieInfoFields).map(movieInfo -> Movie.builder().movieInfo(movieInfo).build()));
+        }
+
+        return switch (reviews) {
+            case REVIEWS_FULL -> retrieveStoredMovie(movieId, variant(REVIEWS_FULL + ":" + pageLimit + ":" + Objects.toString(cursor, ""), movieInfoFields),
+                    () -> retrieveMovie(movieId, movieInfoFields, retrieveReviewPage(movieId, pageLimit, cursor)),
+                    () -> retrieveMovie(movieId, movieInfoFields, Mono.just(ReviewPage.empty())));
+            case REVIEWS_SUMMARY -> retrieveStoredMovie(movieId, variant(REVIEWS_SUMMARY, movieInfoFields),
+                    () -> retrieveMovieWithReviewSummary(movieId, movieInfoFields, retrieveReviewSummary(movieId)),
+                    () -> retrieveMovieWithReviewSummary(movieId, movieInfoFields, Mono.just(Optional.empty())));
+            default -> Mono.just(ResponseEntity.badRequest().build());
+        };
     }
 
+    private static String variant(String reviewsVariant, List<String> movieInfoFields) {
+        return movieInfoFields.isEmpty() ? reviewsVariant : reviewsVariant + "|" + String.join(",", movieInfoFields);
+    }
+
+    private Mono<ResponseEntity<Movie>> retrieveStoredMovie(String movieId, String variant, Supplier<Mono<Movie>> loader) {
+        return movieResponseStore.get(movieId, variant, loader)
+                .map(cachedMovie -> cachedMovie.stale()
+                        ? ResponseEntity.ok().header(STALE_HEADER, "true").body(cachedMovie.movie())
+                        : ResponseEntity.ok().body(cachedMovie.movie()));
+    }
+
+    /**
+     * Same as {@link #retrieveStoredMovie(String, String, Supplier)} for a movie with reviews. When reviews are
+     * unavailable the store serves the last stored movie as stale, and only when none is stored is the movie built by
+     * the degraded loader, without reviews. A degraded movie is never stored, so it cannot replace a good one.
+     */
+    private Mono<ResponseEntity<Movie>> retrieveStoredMovie(String movieId, String variant, Supplier<Mono<Movie>> loader,
+                                                            Supplier<Mono<Movie>> degradedLoader) {
+        return retrieveStoredMovie(movieId, variant, loader)
+                .onErrorResume(ReviewsUnavailableException.class, ex -> {
+                    log.warn("Reviews unavailable and no stored movie, returning movie without reviews : {}", ex.getMessage());
+                    return degradedLoader.get().map(ResponseEntity.ok()::body);
+                });
+    }
+
+    private Mono<Movie> retrieveMovie(String movieId, List<String> movieInfoFields, Mono<ReviewPage> reviewPage) {
+        return Mono.zip(
+                        moviesInfoRestClient.retrieveMovieInfo(movieId, movieInfoFields),
+                        reviewPage
+                )
+                .map(tuple -> Movie.builder()
+                        .movieInfo(tuple.getT1())
+                        .reviewList(tuple.getT2().reviews())
+                        .nextReviewCursor(tuple.getT2().nextCursor())
+                        .build());
+    }
+
+    private Mono<Movie> retrieveMovieWithReviewSummary(String movieId, List<String> movieInfoFields, Mono<Optional<ReviewSummary>> reviewSummary) {
+        return Mono.zip(
+                        moviesInfoRestClient.retrieveMovieInfo(movieId, movieInfoFields),
+                        reviewSummary
+                )
+                .map(tuple -> Movie.builder().movieInfo(tuple.getT1()).reviewSummary(tuple.getT2().orElse(null)).build());
+    }
+
+    /**
+     * Streams the movie as NDJSON: its movie info first, as soon as movies-info-service answers, then every review as
+     * movies-review-service produces it. Reviews are requested alongside the movie info and never collected, so the
+     * first line only waits for the movie info and memory does not grow with the number of reviews.
+     */
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Object> retrieveMovieByIdStream(@PathVariable("id") String movieId) {
+        return Flux.mergeSequential(
+                moviesInfoRestClient.retrieveMovieInfo(movieId, List.of()),
+                withoutReviewsWhenUnavailable(reviewsRestClient.streamReviews(movieId))
+        );
+    }
+
+    /**
+     * Returns the movies with the given ids. Between one and {@code movies.bulk.maxIds} ids are accepted, so a request
+     * can neither fetch the whole catalog nor fan out without bound.
+     */
+    @GetMapping(params = "ids")
+    public Flux<Movie> retrieveMoviesByIds(@RequestParam("ids") List<String> movieIds) {
+        if (movieIds.isEmpty() || movieIds.size() > bulkMaxIds) {
+            return Flux.error(new ServerWebInputException("Between 1 and " + bulkMaxIds + " ids must be given"));
+        }
+
+        return Mono.zip(
+                        moviesInfoRestClient.retrieveMovieInfos(movieIds).collectList(),
+                        retrieveReviews(movieIds).collectMultimap(review -> String.valueOf(review.getMovieInfoId()))
+                )
+                .flatMapIterable(tuple -> {
+                    Map<String, Collection<Review>> reviewsByMovieId = tuple.getT2();
+                    return tuple.getT1().stream()
+                            .map(movieInfo -> Movie.builder()
+                                    .movieInfo(movieInfo)
+                                    .reviewList(List.copyOf(reviewsByMovieId.getOrDefault(movieInfo.getMovieInfoId(), List.of())))
+                                    .build())
+                            .toList();
+                });
+    }
+
+    /**
+     * Streams movie info changes. A deleted movie info is sent with only its id and {@code "deleted": true}.
+     */
     @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
-    public Flux<MovieInfo> retrieveMovieInfoStream() {
-        return moviesInfoRestClient.retrieveMovieInfoStream();
+    public Mono<Void> retrieveMovieInfoStream(ServerHttpResponse response) {
+        response.getHeaders().setContentType(MediaType.APPLICATION_NDJSON);
+        return response.writeAndFlushWith(movieInfoStreamPublisher.movieInfoFrames()
+                .map(frame -> Mono.just(response.bufferFactory().wrap(frame))));
+    }
+
+    /**
+     * Streams movie info changes with the reviews of each movie. A deleted movie is sent as its deleted movie info,
+     * without looking up reviews.
+     */
+    @GetMapping(value = "/stream/enriched", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Movie> retrieveMovieStream(@RequestParam(value = "ordered", required = false) Boolean ordered) {
+        Function<MovieInfo, Mono<Movie>> enrich = movieInfo -> {
+            if (movieInfo.isDeleted()) {
+                return Mono.just(Movie.builder().movieInfo(movieInfo).build());
+            }
+            return retrieveReviews(movieInfo.getMovieInfoId())
+                    .collectList()
+                    .onErrorResume(ex -> {
+                        log.warn("Reviews lookup failed for movieInfoId {}, streaming without reviews : {}", movieInfo.getMovieInfoId(), ex.getMessage());
+                        return Mono.just(List.of());
+                    })
+                    .map(reviews -> Movie.builder().movieInfo(movieInfo).reviewList(reviews).build());
+        };
+
+        Flux<MovieInfo> movieInfos = movieInfoStreamPublisher.movieInfoStream();
+        Flux<Movie> movies = (ordered != null ? ordered : enrichOrdered)
+                ? movieInfos.flatMapSequential(enrich, enrichConcurrency, enrichPrefetch)
+                : movieInfos.flatMap(enrich, enrichConcurrency, enrichPrefetch);
+
+        return movies.contextWrite(DeadlineUtil::withoutDeadline);
+    }
+
+    private Flux<Review> retrieveReviews(String movieId) {
+        return withoutReviewsWhenUnavailable(reviewsRestClient.retrieveReviews(movieId));
+    }
+
+    private Flux<Review> retrieveReviews(List<String> movieIds) {
+        return withoutReviewsWhenUnavailable(reviewsRestClient.retrieveReviews(movieIds));
+    }
+
+    private Mono<ReviewPage> retrieveReviewPage(String movieId, int limit, String cursor) {
+        return reviewsRestClient.retrieveReviews(movieId, limit, cursor)
+                .onErrorMap(MoviesController::isReviewsUnavailable, ReviewsUnavailableException::new);
+    }
+
+    private Mono<Optional<ReviewSummary>> retrieveReviewSummary(String movieId) {
+        return reviewsRestClient.retrieveReviewSummary(movieId)
+                .map(Optional::of)
+                .onErrorMap(MoviesController::isReviewsUnavailable, ReviewsUnavailableException::new)
+                .defaultIfEmpty(Optional.empty());
+    }
+
+    private Flux<Review> withoutReviewsWhenUnavailable(Flux<Review> reviews) {
+        return reviews.onErrorResume(MoviesController::isReviewsUnavailable, ex -> {
+            log.warn("Reviews unavailable, returning movie without reviews : {}", ex.getMessage());
+            return Flux.empty();
+        });
+    }
+
+    private static boolean isReviewsUnavailable(Throwable ex) {
+        return ex instanceof CallNotPermittedException || ex instanceof BulkheadFullException || ex instanceof ConcurrencyLimitExceededException;
     }
 }
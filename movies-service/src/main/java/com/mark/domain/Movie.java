@@ -1,6 +1,7 @@
 package com.mark.domain;
 
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -10,9 +11,12 @@ import java.util.List;
 
 @Getter
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
 public class Movie {
 
     private MovieInfo movieInfo;
     private List<Review> reviewList;
+    private ReviewSummary reviewSummary;
+    private String nextReviewCursor;
 }
@@ -1,5 +1,6 @@
 package com.mark.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
@@ -9,6 +10,7 @@ import java.util.List;
 
 @Getter
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
 public class MovieInfo {
 
@@ -24,4 +26,10 @@ public class MovieInfo {
     @NotNull
     private List<@NotBlank(message = "movieInfo.cast must be present") String> cast;
     private LocalDate release_date;
+
+    /**
+     * Set on the movie info stream when the movie info was deleted, in which case only the id is present.
+     */
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private boolean deleted;
 }
@@ -0,0 +1,13 @@
+package com.mark.domain;
+
+import java.util.List;
+
+/**
+ * One page of reviews and the cursor of the next page, which is null on the last page.
+ */
+public record ReviewPage(List<Review> reviews, String nextCursor) {
+
+    public static ReviewPage empty() {
+        return new ReviewPage(List.of(), null);
+    }
+}
@@ -0,0 +1,19 @@
+package com.mark.domain;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Map;
+
+@Getter
+@Builder
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ReviewSummary {
+
+    private Long movieInfoId;
+    private long count;
+    private Double averageRating;
+    private Map<Integer, Long> ratingHistogram;
+}
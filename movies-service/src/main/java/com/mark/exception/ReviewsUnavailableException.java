@@ -0,0 +1,11 @@
+package com.mark.exception;
+
+/**
+ * Reviews could not be requested because the reviews circuit breaker, bulkhead or concurrency limit rejected the call.
+ */
+public class ReviewsUnavailableException extends RuntimeException {
+
+    public ReviewsUnavailableException(Throwable cause) {
+        super(cause.getMessage(), cause);
+    }
+}
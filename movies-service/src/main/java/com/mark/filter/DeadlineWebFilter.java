@@ -0,0 +1,37 @@
+package com.mark.filter;
+
+import com.mark.util.DeadlineUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Sets the deadline every downstream call of the request is bounded by. A deadline sent by the caller can only shorten
+ * the default timeout, never extend it, so an external client cannot keep the service's resources busy for longer.
+ */
+@Component
+public class DeadlineWebFilter implements WebFilter {
+
+    private final Duration defaultTimeout;
+
+    public DeadlineWebFilter(@Value("${deadline.defaultTimeout}") Duration defaultTimeout) {
+        this.defaultTimeout = defaultTimeout;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        Instant latest = Instant.now().plus(defaultTimeout);
+        Instant deadline = DeadlineUtil.parse(exchange.getRequest().getHeaders().getFirst(DeadlineUtil.DEADLINE_HEADER))
+                .filter(requested -> requested.isBefore(latest))
+                .orElse(latest);
+
+        return chain.filter(exchange)
+                .contextWrite(context -> DeadlineUtil.withDeadline(context, deadline));
+    }
+}
@@ -1,11 +1,16 @@
 package com.mark.globalerrorhandler;
 
+import com.mark.exception.ConcurrencyLimitExceededException;
+import com.mark.exception.DeadlineExceededException;
 import com.mark.exception.MoviesInfoClientException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.server.ResponseStatusException;
 
 @Slf4j
 @ControllerAdvice
@@ -17,6 +22,24 @@ public class GlobalErrorHandler {
         return ResponseEntity.status(e.getStatusCode()).body(e.getMessage());
     }
 
+    @ExceptionHandler(DeadlineExceededException.class)
+    public ResponseEntity<String> handleDeadlineExceededException(DeadlineExceededException e) {
+        log.error("Exception Caught in handleDeadlineExceededException : {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(e.getMessage());
+    }
+
+    @ExceptionHandler({CallNotPermittedException.class, BulkheadFullException.class, ConcurrencyLimitExceededException.class})
+    public ResponseEntity<String> handleUnavailableException(RuntimeException e) {
+        log.error("Exception Caught in handleUnavailableException : {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+    }
+
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<String> handleResponseStatusException(ResponseStatusException e) {
+        log.error("Exception Caught in handleResponseStatusException : {}", e.getMessage());
+        return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<String> handleRuntimeException(RuntimeException e) {
         log.error("Exception Caught in handleRuntimeException : {}", e.getMessage());
@@ -0,0 +1,114 @@
+package com.mark.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mark.client.MoviesInfoRestClient;
+import com.mark.domain.MovieInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans a single upstream movie info stream out to every subscriber. The upstream connects with the first subscriber
+ * and disconnects once the last one has left for longer than the grace period. Each subscriber gets its own bounded
+ * buffer, so a slow client drops its oldest events instead of holding back the others.
+ * <p>
+ * In passthrough mode the upstream NDJSON lines are relayed as raw frames and only decoded for subscribers that need
+ * {@link MovieInfo} objects. Otherwise the upstream is decoded once and frames are re-encoded from it.
+ */
+@Slf4j
+@Component
+public class MovieInfoStreamPublisher {
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final ObjectMapper objectMapper;
+    private final boolean passthrough;
+    private final Flux<byte[]> sharedFrames;
+    private final Flux<MovieInfo> sharedMovieInfos;
+    private final int subscriberBufferSize;
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Counter droppedCounter;
+
+    public MovieInfoStreamPublisher(MoviesInfoRestClient moviesInfoRestClient,
+                                    ObjectMapper objectMapper,
+                                    @Value("${stream.passthrough.enabled}") boolean passthrough,
+                                    @Value("${stream.passthrough.maxFrameSize}") DataSize maxFrameSize,
+                                    @Value("${stream.multicast.subscriberBufferSize}") int subscriberBufferSize,
+                                    @Value("${stream.multicast.disconnectGracePeriod}") Duration disconnectGracePeriod,
+                                    MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.passthrough = passthrough;
+        this.subscriberBufferSize = subscriberBufferSize;
+        this.sharedFrames = share(Flux.defer(() -> moviesInfoRestClient.retrieveMovieInfoStreamFrames((int) maxFrameSize.toBytes())), disconnectGracePeriod);
+        this.sharedMovieInfos = share(Flux.defer(moviesInfoRestClient::retrieveMovieInfoStream), disconnectGracePeriod);
+        this.droppedCounter = Counter.builder("movies.stream.dropped")
+                .description("Movie info events dropped for slow stream subscribers")
+                .register(meterRegistry);
+
+        Gauge.builder("movies.stream.subscribers", subscribers, AtomicInteger::get)
+                .description("Subscribers of the shared movie info stream")
+                .register(meterRegistry);
+    }
+
+    /**
+     * NDJSON frames, one per movie info and each ending with a newline, ready to be written to a client.
+     */
+    public Flux<byte[]> movieInfoFrames() {
+        Flux<byte[]> frames = passthrough
+                ? sharedFrames
+                : sharedMovieInfos.handle((movieInfo, sink) -> {
+                    try {
+                        sink.next(encode(movieInfo));
+                    } catch (IOException ex) {
+                        log.warn("Skipping movie info {} that could not be encoded : {}", movieInfo.getMovieInfoId(), ex.getMessage());
+                    }
+                });
+        return perSubscriber(frames);
+    }
+
+    public Flux<MovieInfo> movieInfoStream() {
+        Flux<MovieInfo> movieInfos = passthrough
+                ? sharedFrames.handle((frame, sink) -> {
+                    try {
+                        sink.next(objectMapper.readValue(frame, MovieInfo.class));
+                    } catch (IOException ex) {
+                        log.warn("Skipping movie info frame that could not be decoded : {}", ex.getMessage());
+                    }
+                })
+                : sharedMovieInfos;
+        return perSubscriber(movieInfos);
+    }
+
+    private <T> Flux<T> share(Flux<T> upstream, Duration disconnectGracePeriod) {
+        return upstream
+                .doOnSubscribe(subscription -> log.info("Connecting shared movie info stream"))
+                .doFinally(signalType -> log.info("Shared movie info stream disconnected : {}", signalType))
+                .publish()
+                .refCount(1, disconnectGracePeriod);
+    }
+
+    private <T> Flux<T> perSubscriber(Flux<T> shared) {
+        return shared
+                .onBackpressureBuffer(subscriberBufferSize, event -> droppedCounter.increment(), BufferOverflowStrategy.DROP_OLDEST)
+                .doOnSubscribe(subscription -> subscribers.incrementAndGet())
+                .doFinally(signalType -> subscribers.decrementAndGet());
+    }
+
+    private byte[] encode(MovieInfo movieInfo) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(movieInfo);
+        byte[] frame = Arrays.copyOf(json, json.length + NEWLINE.length);
+        System.arraycopy(NEWLINE, 0, frame, json.length, NEWLINE.length);
+        return frame;
+    }
+}
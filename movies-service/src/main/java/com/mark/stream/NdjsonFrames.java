@@ -0,0 +1,73 @@
+package com.mark.stream;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.PooledDataBuffer;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits an NDJSON body into one frame per line without decoding it. Every frame keeps its trailing newline so it can
+ * be written to a client as is; blank lines are dropped.
+ */
+public class NdjsonFrames {
+
+    private static final byte NEWLINE = '\n';
+
+    public static Flux<byte[]> split(Flux<DataBuffer> buffers, int maxFrameSize) {
+        return Flux.defer(() -> {
+            ByteArrayOutputStream partialFrame = new ByteArrayOutputStream();
+            return buffers
+                    .concatMapIterable(buffer -> {
+                        try {
+                            return frames(buffer, partialFrame, maxFrameSize);
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                    })
+                    .doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
+        });
+    }
+
+    private static List<byte[]> frames(DataBuffer buffer, ByteArrayOutputStream partialFrame, int maxFrameSize) {
+        List<byte[]> frames = new ArrayList<>();
+        while (buffer.readableByteCount() > 0) {
+            int newline = buffer.indexOf(b -> b == NEWLINE, buffer.readPosition());
+            int length = newline == -1 ? buffer.readableByteCount() : newline - buffer.readPosition() + 1;
+            if (partialFrame.size() + length > maxFrameSize) {
+                throw new DataBufferLimitException("NDJSON frame exceeds the limit of " + maxFrameSize + " bytes");
+            }
+
+            byte[] chunk = new byte[length];
+            buffer.read(chunk);
+            if (newline == -1) {
+                partialFrame.writeBytes(chunk);
+                break;
+            }
+
+            byte[] frame = chunk;
+            if (partialFrame.size() > 0) {
+                partialFrame.writeBytes(chunk);
+                frame = partialFrame.toByteArray();
+                partialFrame.reset();
+            }
+            if (!isBlank(frame)) {
+                frames.add(frame);
+            }
+        }
+        return frames;
+    }
+
+    private static boolean isBlank(byte[] frame) {
+        for (byte b : frame) {
+            if (!Character.isWhitespace(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
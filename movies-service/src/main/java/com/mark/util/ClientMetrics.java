@@ -0,0 +1,33 @@
+package com.mark.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Outcome metrics of the downstream clients that the http.client.requests timer cannot see: failures after retries and
+ * resilience decorators, by exception type, and the number of retries issued.
+ */
+@Component
+@RequiredArgsConstructor
+public class ClientMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public Counter retries(String downstream) {
+        return Counter.builder("movies.client.retries")
+                .description("Retries and reconnects issued to a downstream service")
+                .tag("downstream", downstream)
+                .register(meterRegistry);
+    }
+
+    public void recordError(String downstream, Throwable ex) {
+        Counter.builder("movies.client.errors")
+                .description("Failed downstream calls by exception type")
+                .tag("downstream", downstream)
+                .tag("exception", ex.getClass().getSimpleName())
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,177 @@
+package com.mark.util;
+
+import com.mark.config.RestClientProperties;
+import com.mark.exception.ConcurrencyLimitExceededException;
+import com.mark.exception.MoviesInfoServerException;
+import com.mark.exception.ReviewsServerException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the calls in flight to a downstream with a limit that adapts to its round trip times (AIMD). A call that
+ * completes close to the average round trip while the limit is at least half used raises the limit by one. A call that
+ * is much slower than average, or fails because the downstream is overloaded, cuts the limit by the backoff ratio, once
+ * per round trip window: calls that were already in flight at the last cut saw the same overload and do not cut again.
+ * Calls over the limit are rejected right away instead of queueing behind a struggling downstream.
+ */
+public class ConcurrencyLimiter {
+
+    private final String name;
+    private final RestClientProperties.ConcurrencyLimit concurrencyLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejectedCounter;
+
+    private double limit;
+    private double averageRttNanos;
+    private long lastDecreaseNanos;
+
+    public ConcurrencyLimiter(String name, RestClientProperties.ConcurrencyLimit concurrencyLimit, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.concurrencyLimit = concurrencyLimit;
+        this.limit = concurrencyLimit.getInitialLimit();
+        this.lastDecreaseNanos = System.nanoTime();
+        this.rejectedCounter = Counter.builder("movies.concurrency.rejected")
+                .description("Downstream calls rejected by the adaptive concurrency limit")
+                .tag("name", name)
+                .register(meterRegistry);
+
+        Gauge.builder("movies.concurrency.limit", this, ConcurrencyLimiter::getLimit)
+                .description("Adaptive limit of downstream calls in flight")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("movies.concurrency.inflight", inFlight, AtomicInteger::get)
+                .description("Downstream calls in flight")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public <T> Mono<T> limit(Mono<T> call) {
+        if (!concurrencyLimit.isEnabled()) {
+            return call;
+        }
+
+        return Mono.defer(() -> {
+            Permit permit = tryAcquire();
+            if (permit == null) {
+                return Mono.error(rejected());
+            }
+            return call
+                    .doOnSuccess(value -> permit.release(null))
+                    .doOnError(permit::release)
+                    .doOnCancel(permit::abandon);
+        });
+    }
+
+    /**
+     * Holds the permit only until the first element arrives, or the call ends without one. The round trip is sampled at
+     * that point: the time to stream the rest of a body depends on its size and on how fast the caller reads it, not on
+     * how loaded the downstream is, and holding the permit for the whole body would count a long stream as in flight.
+     */
+    public <T> Flux<T> limit(Flux<T> call) {
+        if (!concurrencyLimit.isEnabled()) {
+            return call;
+        }
+
+        return Flux.defer(() -> {
+            Permit permit = tryAcquire();
+            if (permit == null) {
+                return Flux.error(rejected());
+            }
+            return call
+                    .doOnNext(value -> permit.release(null))
+                    .doOnComplete(() -> permit.release(null))
+                    .doOnError(permit::release)
+                    .doOnCancel(permit::abandon);
+        });
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    private Permit tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= getLimit()) {
+                return null;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+
+        return new Permit(current + 1, System.nanoTime());
+    }
+
+    private ConcurrencyLimitExceededException rejected() {
+        rejectedCounter.increment();
+        return new ConcurrencyLimitExceededException("Concurrency limit of " + getLimit() + " reached for " + name);
+    }
+
+    private synchronized void onSample(long startNanos, long rttNanos, int inFlightAtStart) {
+        if (averageRttNanos == 0) {
+            averageRttNanos = rttNanos;
+        }
+        boolean slow = rttNanos > averageRttNanos * concurrencyLimit.getRttTolerance();
+        averageRttNanos += (rttNanos - averageRttNanos) * concurrencyLimit.getRttSmoothing();
+
+        if (slow) {
+            decrease(startNanos);
+        } else if (inFlightAtStart * 2 >= limit) {
+            limit = Math.min(concurrencyLimit.getMaxLimit(), limit + 1);
+        }
+    }
+
+    private synchronized void decrease(long startNanos) {
+        if (startNanos - lastDecreaseNanos < 0) {
+            return;
+        }
+        limit = Math.max(concurrencyLimit.getMinLimit(), limit * concurrencyLimit.getBackoffRatio());
+        lastDecreaseNanos = System.nanoTime();
+    }
+
+    /**
+     * Only failures that point at an overloaded downstream lower the limit. Client errors and calls short-circuited by
+     * the circuit breaker or the bulkhead say nothing about its capacity.
+     */
+    private static boolean isOverload(Throwable ex) {
+        return ex instanceof MoviesInfoServerException || ex instanceof ReviewsServerException
+                || ex instanceof TimeoutException || ex instanceof WebClientRequestException;
+    }
+
+    private class Permit {
+
+        private final int inFlightAtStart;
+        private final long start;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int inFlightAtStart, long start) {
+            this.inFlightAtStart = inFlightAtStart;
+            this.start = start;
+        }
+
+        void release(Throwable ex) {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            inFlight.decrementAndGet();
+            if (ex == null) {
+                onSample(start, System.nanoTime() - start, inFlightAtStart);
+            } else if (isOverload(ex)) {
+                decrease(start);
+            }
+        }
+
+        void abandon() {
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.mark.util;
+
+import com.mark.exception.DeadlineExceededException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * The request deadline travels in the Reactor context and, between services, as epoch millis in the
+ * {@value #DEADLINE_HEADER} header.
+ */
+public class DeadlineUtil {
+
+    public static final String DEADLINE_HEADER = "X-Request-Deadline";
+    private static final String CONTEXT_KEY = DeadlineUtil.class.getName();
+
+    public static Optional<Instant> parse(String headerValue) {
+        try {
+            return Optional.ofNullable(headerValue).map(Long::parseLong).map(Instant::ofEpochMilli);
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    public static Context withDeadline(Context context, Instant deadline) {
+        return context.put(CONTEXT_KEY, deadline);
+    }
+
+    public static Context withoutDeadline(Context context) {
+        return context.delete(CONTEXT_KEY);
+    }
+
+    public static <T> Mono<T> bound(Mono<T> mono) {
+        return Mono.deferContextual(contextView -> contextView.<Instant>getOrEmpty(CONTEXT_KEY)
+                .map(deadline -> mono.timeout(expiry(deadline), Mono.error(() -> deadlineExceeded(deadline))))
+                .orElse(mono));
+    }
+
+    public static <T> Flux<T> bound(Flux<T> flux) {
+        return Flux.deferContextual(contextView -> contextView.<Instant>getOrEmpty(CONTEXT_KEY)
+                .map(deadline -> flux.timeout(expiry(deadline), item -> expiry(deadline), Flux.error(() -> deadlineExceeded(deadline))))
+                .orElse(flux));
+    }
+
+    /**
+     * Fails with a {@link DeadlineExceededException} when the downstream answered 504 or the deadline of the request has
+     * already passed, since a retry could not finish in time either way. Completes empty for any other server error.
+     */
+    public static Mono<Throwable> exceeded(ClientResponse response, String downstream) {
+        return Mono.deferContextual(contextView -> {
+            boolean expired = contextView.<Instant>getOrEmpty(CONTEXT_KEY)
+                    .map(deadline -> !Instant.now().isBefore(deadline))
+                    .orElse(false);
+            if (!expired && response.statusCode().value() != HttpStatus.GATEWAY_TIMEOUT.value()) {
+                return Mono.empty();
+            }
+            return response.releaseBody()
+                    .then(Mono.error(new DeadlineExceededException("Request deadline exceeded calling " + downstream)));
+        });
+    }
+
+    public static ExchangeFilterFunction propagateDeadline() {
+        return ExchangeFilterFunction.ofRequestProcessor(request -> Mono.deferContextual(contextView -> Mono.just(
+                contextView.<Instant>getOrEmpty(CONTEXT_KEY)
+                        .map(deadline -> ClientRequest.from(request)
+                                .header(DEADLINE_HEADER, String.valueOf(deadline.toEpochMilli()))
+                                .build())
+                        .orElse(request))));
+    }
+
+    private static Mono<Long> expiry(Instant deadline) {
+        Duration remaining = Duration.between(Instant.now(), deadline);
+        return Mono.delay(remaining.isNegative() ? Duration.ZERO : remaining);
+    }
+
+    private static DeadlineExceededException deadlineExceeded(Instant deadline) {
+        return new DeadlineExceededException("Request deadline exceeded at " + deadline);
+    }
+}
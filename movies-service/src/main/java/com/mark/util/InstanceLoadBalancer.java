@@ -0,0 +1,208 @@
+package com.mark.util;
+
+import com.mark.config.RestClientProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Spreads the requests to a downstream over its instances by rewriting the scheme, host and port of each request. Two
+ * available instances are picked at random and the one with fewer requests outstanding wins (power of two choices).
+ * An instance that fails a number of calls in a row, with a connection error or a 5xx response, is ejected. Once its
+ * ejection time is over, the next request that picks it is the probe: success re-admits the instance, failure ejects it
+ * again. When every instance is ejected the requests are spread over all of them rather than failed outright.
+ * <p>
+ * Requests marked with {@link #STREAM_ATTRIBUTE} open long-lived streams. They are pinned to one instance, so a
+ * reconnect resumes against the same replay, and move only once that instance is ejected. They are left out of the
+ * outstanding count, which would otherwise steer ordinary calls away from the instance for as long as the stream lasts.
+ */
+@Slf4j
+public class InstanceLoadBalancer implements ExchangeFilterFunction {
+
+    public static final String STREAM_ATTRIBUTE = InstanceLoadBalancer.class.getName() + ".stream";
+
+    private final String name;
+    private final RestClientProperties.LoadBalancer loadBalancer;
+    private final List<Instance> instances;
+    private final Counter ejectionCounter;
+    private final AtomicReference<Instance> streamInstance = new AtomicReference<>();
+
+    public InstanceLoadBalancer(String name, RestClientProperties.LoadBalancer loadBalancer, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.loadBalancer = loadBalancer;
+        this.instances = loadBalancer.getInstances().stream().map(Instance::new).toList();
+        this.ejectionCounter = Counter.builder("movies.loadbalancer.ejections")
+                .description("Downstream instances taken out of rotation after consecutive failures")
+                .tag("name", name)
+                .register(meterRegistry);
+
+        Gauge.builder("movies.loadbalancer.available", this, InstanceLoadBalancer::getAvailableInstances)
+                .description("Downstream instances in rotation")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (instances.isEmpty()) {
+            return next.exchange(request);
+        }
+        if (request.attribute(STREAM_ATTRIBUTE).isPresent()) {
+            return Mono.defer(() -> stream(request, next));
+        }
+
+        return Mono.defer(() -> {
+            Instance instance = choose();
+            instance.outstanding.incrementAndGet();
+            AtomicBoolean released = new AtomicBoolean();
+
+            ClientRequest balanced = ClientRequest.from(request).url(instance.rewrite(request.url())).build();
+            return next.exchange(balanced)
+                    .doOnNext(response -> {
+                        if (released.compareAndSet(false, true)) {
+                            instance.release(!response.statusCode().is5xxServerError());
+                        }
+                    })
+                    .doOnError(ex -> {
+                        if (released.compareAndSet(false, true)) {
+                            instance.release(false);
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (released.compareAndSet(false, true)) {
+                            instance.abandon();
+                        }
+                    });
+        });
+    }
+
+    private Mono<ClientResponse> stream(ClientRequest request, ExchangeFunction next) {
+        Instance instance = streamInstance.updateAndGet(pinned -> pinned == null || pinned.isEjected()
+                ? leastOutstandingOfTwo(available())
+                : pinned);
+
+        ClientRequest pinned = ClientRequest.from(request).url(instance.rewrite(request.url())).build();
+        return next.exchange(pinned)
+                .doOnNext(response -> instance.record(!response.statusCode().is5xxServerError()))
+                .doOnError(ex -> instance.record(false));
+    }
+
+    public int getAvailableInstances() {
+        return (int) instances.stream().filter(instance -> !instance.isEjected()).count();
+    }
+
+    private Instance choose() {
+        long now = System.nanoTime();
+        for (Instance instance : instances) {
+            if (instance.isEjected() && instance.isProbeDue(now) && instance.probing.compareAndSet(false, true)) {
+                return instance;
+            }
+        }
+        return leastOutstandingOfTwo(available());
+    }
+
+    private List<Instance> available() {
+        List<Instance> available = new ArrayList<>(instances.size());
+        for (Instance instance : instances) {
+            if (!instance.isEjected()) {
+                available.add(instance);
+            }
+        }
+        return available.isEmpty() ? instances : available;
+    }
+
+    private static Instance leastOutstandingOfTwo(List<Instance> candidates) {
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        Instance a = candidates.get(first);
+        Instance b = candidates.get(second);
+        return a.outstanding.get() <= b.outstanding.get() ? a : b;
+    }
+
+    private class Instance {
+
+        private final URI uri;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final AtomicBoolean probing = new AtomicBoolean();
+        private volatile long ejectedUntil;
+        private volatile boolean ejected;
+
+        private Instance(URI uri) {
+            this.uri = uri;
+        }
+
+        URI rewrite(URI url) {
+            return UriComponentsBuilder.fromUri(url)
+                    .scheme(uri.getScheme())
+                    .host(uri.getHost())
+                    .port(uri.getPort())
+                    .build(true)
+                    .toUri();
+        }
+
+        boolean isEjected() {
+            return ejected;
+        }
+
+        boolean isProbeDue(long now) {
+            return now - ejectedUntil >= 0;
+        }
+
+        void release(boolean success) {
+            outstanding.decrementAndGet();
+            record(success);
+        }
+
+        void record(boolean success) {
+            if (success) {
+                consecutiveFailures.set(0);
+                if (ejected) {
+                    log.info("Re-admitting {} instance {} after a successful probe", name, uri);
+                    ejected = false;
+                }
+                probing.set(false);
+            } else if (probing.get() || consecutiveFailures.incrementAndGet() >= loadBalancer.getEjectAfterFailures()) {
+                eject();
+            }
+        }
+
+        void abandon() {
+            outstanding.decrementAndGet();
+            probing.set(false);
+        }
+
+        private synchronized void eject() {
+            ejectedUntil = System.nanoTime() + loadBalancer.getEjectionTime().toNanos();
+            if (!ejected) {
+                log.warn("Ejecting {} instance {} after {} consecutive failures", name, uri, consecutiveFailures.get());
+                ejected = true;
+                ejectionCounter.increment();
+            }
+            consecutiveFailures.set(0);
+            probing.set(false);
+        }
+    }
+}
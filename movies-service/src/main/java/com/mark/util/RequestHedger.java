@@ -0,0 +1,105 @@
+package com.mark.util;
+
+import com.mark.config.RestClientProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Sends a second, identical request when the first has not answered within the configured latency percentile.
+ * The first signal wins and the other request is cancelled. Hedges are drawn from a token bucket so they never
+ * exceed the configured share of traffic.
+ * <p>
+ * The delay is derived from the latency of first attempts only, whatever their outcome. A first attempt cancelled
+ * because the hedge won is recorded with the time it had taken so far. Timing the winner instead would let fast
+ * hedges pull the percentile down, fire ever more hedges, and leave slow failures out of the picture altogether.
+ */
+public class RequestHedger {
+
+    private static final long MILLIS_PER_TOKEN = 1000;
+
+    private final RestClientProperties.Hedging hedging;
+    private final Timer latencyTimer;
+    private final Counter firedCounter;
+    private final Counter wonCounter;
+    private final long depositMillis;
+    private final long maxMillis;
+    private final AtomicLong availableMillis;
+
+    public RequestHedger(String name, RestClientProperties.Hedging hedging, MeterRegistry meterRegistry) {
+        this.hedging = hedging;
+        this.latencyTimer = Timer.builder("movies.hedging.latency")
+                .description("Latency of the first attempt of hedged downstream requests")
+                .tag("name", name)
+                .publishPercentiles(hedging.getPercentile())
+                .register(meterRegistry);
+        this.firedCounter = hedgeCounter(name, "fired", meterRegistry);
+        this.wonCounter = hedgeCounter(name, "won", meterRegistry);
+        this.depositMillis = Math.round(hedging.getMaxRatio() * MILLIS_PER_TOKEN);
+        this.maxMillis = Math.round(hedging.getMaxTokens() * MILLIS_PER_TOKEN);
+        this.availableMillis = new AtomicLong(maxMillis);
+    }
+
+    public <T> Mono<T> hedge(Supplier<Mono<T>> request) {
+        if (!hedging.isEnabled()) {
+            return Mono.defer(request);
+        }
+
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            availableMillis.accumulateAndGet(depositMillis, (available, deposit) -> Math.min(available + deposit, maxMillis));
+
+            Mono<T> hedgedRequest = Mono.delay(hedgeDelay())
+                    .flatMap(tick -> {
+                        if (!tryAcquireHedge()) {
+                            return Mono.never();
+                        }
+                        firedCounter.increment();
+                        return request.get().doOnNext(value -> wonCounter.increment());
+                    })
+                    .onErrorResume(ex -> Mono.never());
+
+            Mono<T> primaryRequest = request.get()
+                    .doFinally(signal -> latencyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+
+            return Mono.firstWithSignal(primaryRequest, hedgedRequest);
+        });
+    }
+
+    Duration hedgeDelay() {
+        long percentileMillis = 0;
+        for (ValueAtPercentile valueAtPercentile : latencyTimer.takeSnapshot().percentileValues()) {
+            percentileMillis = (long) valueAtPercentile.value(TimeUnit.MILLISECONDS);
+        }
+
+        long delayMillis = Math.max(hedging.getMinDelay().toMillis(), Math.min(percentileMillis, hedging.getMaxDelay().toMillis()));
+        return Duration.ofMillis(delayMillis);
+    }
+
+    private boolean tryAcquireHedge() {
+        long available;
+        do {
+            available = availableMillis.get();
+            if (available < MILLIS_PER_TOKEN) {
+                return false;
+            }
+        } while (!availableMillis.compareAndSet(available, available - MILLIS_PER_TOKEN));
+
+        return true;
+    }
+
+    private static Counter hedgeCounter(String name, String outcome, MeterRegistry meterRegistry) {
+        return Counter.builder("movies.hedging.requests")
+                .description("Hedged downstream requests")
+                .tag("name", name)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
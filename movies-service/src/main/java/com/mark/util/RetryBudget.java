@@ -0,0 +1,64 @@
+package com.mark.util;
+
+import com.mark.config.RestClientProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket shared by all downstream clients. Every request deposits a fraction of a token and every retry
+ * withdraws a whole one, so once the initial bucket is spent retries cannot exceed the configured ratio of traffic.
+ */
+@Component
+public class RetryBudget {
+
+    private static final long MILLIS_PER_TOKEN = 1000;
+
+    private final long depositMillis;
+    private final long maxMillis;
+    private final AtomicLong availableMillis;
+    private final Counter exhaustedCounter;
+
+    @Autowired
+    public RetryBudget(RestClientProperties properties, MeterRegistry meterRegistry) {
+        this(properties.getRetryBudget(), meterRegistry);
+    }
+
+    RetryBudget(RestClientProperties.RetryBudget retryBudget, MeterRegistry meterRegistry) {
+        this.depositMillis = Math.round(retryBudget.getRatio() * MILLIS_PER_TOKEN);
+        this.maxMillis = Math.round(retryBudget.getMaxTokens() * MILLIS_PER_TOKEN);
+        this.availableMillis = new AtomicLong(maxMillis);
+        this.exhaustedCounter = Counter.builder("movies.retry.budget.exhausted")
+                .description("Retries skipped because the retry budget was empty")
+                .register(meterRegistry);
+
+        Gauge.builder("movies.retry.budget.tokens", this, RetryBudget::availableTokens)
+                .description("Retry tokens currently available")
+                .register(meterRegistry);
+    }
+
+    public void recordRequest() {
+        availableMillis.accumulateAndGet(depositMillis, (available, deposit) -> Math.min(available + deposit, maxMillis));
+    }
+
+    public boolean tryAcquireRetry() {
+        long available;
+        do {
+            available = availableMillis.get();
+            if (available < MILLIS_PER_TOKEN) {
+                exhaustedCounter.increment();
+                return false;
+            }
+        } while (!availableMillis.compareAndSet(available, available - MILLIS_PER_TOKEN));
+
+        return true;
+    }
+
+    public double availableTokens() {
+        return (double) availableMillis.get() / MILLIS_PER_TOKEN;
+    }
+}
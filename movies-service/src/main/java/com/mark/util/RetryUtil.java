@@ -1,17 +1,45 @@
 package com.mark.util;
 
+import com.mark.config.RestClientProperties;
 import com.mark.exception.MoviesInfoServerException;
 import com.mark.exception.ReviewsServerException;
+import io.micrometer.core.instrument.Counter;
 import reactor.core.Exceptions;
 import reactor.util.retry.Retry;
-
-import java.time.Duration;
+import reactor.util.retry.RetryBackoffSpec;
 
 public class RetryUtil {
 
-    public static Retry retrySpec() {
-        return Retry.fixedDelay(3, Duration.ofSeconds(1))
+    /**
+     * Retries server errors with backoff, charging every retry to the retry budget. The token is taken just before a
+     * retry is issued, after the attempt limit has been checked, so a request that runs out of attempts costs nothing
+     * more. When the budget is empty the retry is dropped and the last failure is propagated.
+     */
+    public static Retry retrySpec(RestClientProperties.Retry retry, RetryBudget retryBudget, Counter retries) {
+        return Retry.backoff(retry.getMaxAttempts(), retry.getMinBackoff())
+                .maxBackoff(retry.getMaxBackoff())
+                .jitter(retry.getJitter())
+                .filter(ex -> ex instanceof MoviesInfoServerException || ex instanceof ReviewsServerException)
+                .doBeforeRetry(retrySignal -> {
+                    if (!retryBudget.tryAcquireRetry()) {
+                        throw Exceptions.propagate(retrySignal.failure());
+                    }
+                    retries.increment();
+                })
+                .onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> Exceptions.propagate(retrySignal.failure()));
+    }
+
+    /**
+     * Reconnects a long-lived stream. A reconnect replaces a single connection rather than multiplying requests, so it
+     * is paced by the backoff alone and not charged to the retry budget. The attempt count resets after every element.
+     */
+    public static RetryBackoffSpec reconnectSpec(RestClientProperties.Retry retry, Counter retries) {
+        return Retry.backoff(retry.getMaxAttempts(), retry.getMinBackoff())
+                .maxBackoff(retry.getMaxBackoff())
+                .jitter(retry.getJitter())
+                .transientErrors(true)
                 .filter(ex -> ex instanceof MoviesInfoServerException || ex instanceof ReviewsServerException)
+                .doBeforeRetry(retrySignal -> retries.increment())
                 .onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> Exceptions.propagate(retrySignal.failure()));
     }
 }
@@ -0,0 +1,114 @@
+package com.mark.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import com.mark.domain.MovieInfo;
+import com.mark.domain.Review;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Decoder;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the payload size and encode/decode time of JSON and Smile for the bodies movies-service reads from the
+ * backends, going through the same WebFlux codecs the services use. Left out of the test task; run it with
+ * {@code gradle benchmark}. Sizes are asserted; timings are logged, since they depend on the machine running them.
+ */
+@Tag("benchmark")
+class SmileCodecBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(SmileCodecBenchmarkTest.class);
+
+    private static final int ROUNDS = 200;
+    private static final MimeType APPLICATION_SMILE = new MimeType("application", "x-jackson-smile");
+
+    private final ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().modulesToInstall(new ParameterNamesModule()).build();
+    private final ObjectMapper smileMapper = Jackson2ObjectMapperBuilder.json().modulesToInstall(new ParameterNamesModule()).factory(new SmileFactory()).build();
+
+    private final Codec json = new Codec(new Jackson2JsonEncoder(jsonMapper), new Jackson2JsonDecoder(jsonMapper), MediaType.APPLICATION_JSON);
+    private final Codec smile = new Codec(new SmileArrayEncoder(smileMapper, APPLICATION_SMILE), new Jackson2SmileDecoder(smileMapper, APPLICATION_SMILE), APPLICATION_SMILE);
+
+    private final List<MovieInfo> movieInfos = IntStream.range(0, 500)
+            .mapToObj(i -> MovieInfo.builder().movieInfoId(String.valueOf(i)).name("Batman Begins " + i).year(2005).cast(List.of("Christian Bale", "Michael Cane")).release_date(LocalDate.parse("2005-06-15")).build())
+            .toList();
+
+    private final List<Review> reviews = IntStream.range(0, 2000)
+            .mapToObj(i -> Review.builder().reviewId("review" + i).movieInfoId((long) i % 500).comment("Awesome Movie").rating(9.0).build())
+            .toList();
+
+    @Test
+    void movieInfos_jsonVsSmile() {
+        compare("movieInfos", movieInfos, MovieInfo.class);
+    }
+
+    @Test
+    void reviews_jsonVsSmile() {
+        compare("reviews", reviews, Review.class);
+    }
+
+    private <T> void compare(String name, List<T> values, Class<T> elementType) {
+        ResolvableType type = ResolvableType.forClass(elementType);
+        byte[] jsonBody = json.encode(values, type);
+        byte[] smileBody = smile.encode(values, type);
+
+        assertEquals(values.size(), smile.decode(smileBody, type).size());
+        assertTrue(smileBody.length < jsonBody.length, name + " smile payload should be smaller than json");
+
+        long jsonNanos = roundTrip(json, values, type);
+        long smileNanos = roundTrip(smile, values, type);
+
+        log.info("{}: json {} bytes {} ms/round, smile {} bytes {} ms/round ({}% of json size)",
+                name, jsonBody.length, String.format("%.2f", jsonNanos / 1e6 / ROUNDS),
+                smileBody.length, String.format("%.2f", smileNanos / 1e6 / ROUNDS), Math.round(100.0 * smileBody.length / jsonBody.length));
+    }
+
+    private <T> long roundTrip(Codec codec, List<T> values, ResolvableType type) {
+        for (int i = 0; i < ROUNDS; i++) {
+            codec.decode(codec.encode(values, type), type);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            codec.decode(codec.encode(values, type), type);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private record Codec(Encoder<Object> encoder, Decoder<Object> decoder, MimeType mimeType) {
+
+        byte[] encode(List<?> values, ResolvableType type) {
+            DataBuffer body = DataBufferUtils.join(encoder.encode(Flux.fromIterable(values), DefaultDataBufferFactory.sharedInstance, type, mimeType, Map.of())).block();
+            assertNotNull(body);
+            byte[] bytes = new byte[body.readableByteCount()];
+            body.read(bytes);
+            DataBufferUtils.release(body);
+            return bytes;
+        }
+
+        List<Object> decode(byte[] body, ResolvableType type) {
+            return decoder.decode(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body)), type, mimeType, Map.of()).collectList().block();
+        }
+    }
+}
@@ -1,7 +1,17 @@
 package com.mark.controller;
 
 import com.github.tomakehurst.wiremock.client.WireMock;
+import com.mark.cache.MissingMovieInfoCache;
+import com.mark.cache.MovieInfoCache;
+import com.mark.cache.MovieResponseStore;
+import com.mark.client.MoviesInfoRestClient;
+import com.mark.client.ReviewsRestClient;
 import com.mark.domain.Movie;
+import com.mark.domain.MovieInfo;
+import com.mark.util.DeadlineUtil;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,14 +19,25 @@ import org.springframework.boot.test.autoconfigure.web.client.AutoConfigureWebCl
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.cloud.contract.spec.internal.HttpStatus;
 import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
@@ -24,7 +45,12 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 @AutoConfigureWireMock(port = 0)
 @TestPropertySource(properties = {
         "restClient.moviesInfoUrl=http://localhost:${wiremock.server.port}/v1/movieinfos",
-        "restClient.reviewsUrl=http://localhost:${wiremock.server.port}/v1/reviews"
+        "restClient.reviewsUrl=http://localhost:${wiremock.server.port}/v1/reviews",
+        "cache.movieResponse.softTtl=0s",
+        "cache.movieResponse.staleWhileRevalidate=0s",
+        "cache.invalidation.enabled=false",
+        "stream.multicast.disconnectGracePeriod=0s",
+        "management.prometheus.metrics.export.enabled=true"
 })
 public class MoviesControllerIntegrationTest {
 
@@ -36,9 +62,28 @@ public class MoviesControllerIntegrationTest {
     @Autowired
     WebTestClient webClient;
 
+    @Autowired
+    MovieInfoCache movieInfoCache;
+
+    @Autowired
+    MissingMovieInfoCache missingMovieInfoCache;
+
+    @Autowired
+    MovieResponseStore movieResponseStore;
+
+    @Autowired
+    CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
     @BeforeEach
     void setUp() {
         WireMock.reset();
+        movieInfoCache.evictAll();
+        missingMovieInfoCache.evictAll();
+        movieResponseStore.evictAll();
+        circuitBreakerRegistry.getAllCircuitBreakers().forEach(CircuitBreaker::reset);
     }
 
     @Test
@@ -75,15 +120,41 @@ public class MoviesControllerIntegrationTest {
                 });
 
         // then
+        assertNotNull(meterRegistry.find("reactor.netty.connection.provider.active.connections").tag("name", "moviesInfo").gauge());
+        assertNotNull(meterRegistry.find("reactor.netty.connection.provider.pending.connections").tag("name", "reviews").gauge());
+        assertNotNull(meterRegistry.find("resilience4j.circuitbreaker.state").tag("name", "moviesInfo").gauge());
+        assertTrue(meterRegistry.get("movies.concurrency.limit").tag("name", "reviews").gauge().value() > 0);
+        WireMock.verify(getRequestedFor(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID)).withHeader("Accept", containing("application/x-jackson-smile")));
+        assertTrue(meterRegistry.get("http.client.requests").tag("downstream", "moviesInfo").tag("uri", MOVIE_INFOS_URL + "/{id}").tag("outcome", "SUCCESS").timer().count() >= 1);
+        assertTrue(meterRegistry.get("http.client.requests").tag("downstream", "reviews").tag("uri", REVIEWS_URL + "?movieInfoId={movieInfoId}&limit={limit}").timer().count() >= 1);
+        assertTrue(meterRegistry.get("reactor.netty.http.client.data.received").tag("uri", "moviesInfo").summary().totalAmount() > 0);
+
+        webClient.get().uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .value(body -> assertTrue(body.contains("http_client_requests_seconds_bucket{")));
     }
 
     @Test
-    void retrieveMovieById_404() {
+    void retrieveMovieById_revalidatesMovieInfo() {
         // given
         stubFor(
                 get(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID))
                         .willReturn(aResponse()
-                                .withStatus(HttpStatus.NOT_FOUND)
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withHeader("ETag", "\"v1\"")
+                                .withBodyFile("movieinfo.json")
+                        )
+        );
+
+        stubFor(
+                get(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID))
+                        .withHeader("If-None-Match", equalTo("\"v1\""))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.NOT_MODIFIED)
+                                .withHeader("ETag", "\"v1\"")
                         )
         );
 
@@ -97,19 +168,29 @@ public class MoviesControllerIntegrationTest {
                         )
         );
 
+        webClient.get().uri(MOVIES_URL + "/{id}", MOVIE_ID)
+                .exchange()
+                .expectStatus().isOk();
+
         // when
+        movieInfoCache.evict(MOVIE_ID);
+
+        // then
         webClient.get().uri(MOVIES_URL + "/{id}", MOVIE_ID)
                 .exchange()
-                .expectStatus()
-                .is4xxClientError()
-                .expectBody(String.class)
-                .isEqualTo("MovieInfo not found for id: " + MOVIE_ID);
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    Movie movie = Objects.requireNonNull(movieEntityExchangeResult.getResponseBody());
+                    assertEquals("Batman Begins", movie.getMovieInfo().getName());
+                });
 
-        WireMock.verify(1, getRequestedFor(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID)));
+        WireMock.verify(2, getRequestedFor(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID)));
+        WireMock.verify(1, getRequestedFor(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID)).withHeader("If-None-Match", equalTo("\"v1\"")));
     }
 
     @Test
-    void retrieveMovieById_reviews_404() {
+    void retrieveMovieById_reviewPage() {
         // given
         stubFor(
                 get(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID))
@@ -123,49 +204,223 @@ public class MoviesControllerIntegrationTest {
         stubFor(
                 get(urlPathEqualTo(REVIEWS_URL))
                         .withQueryParam("movieInfoId", equalTo(MOVIE_ID))
+                        .withQueryParam("limit", equalTo("2"))
                         .willReturn(aResponse()
-                                .withStatus(HttpStatus.NOT_FOUND)
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withHeader(ReviewsRestClient.NEXT_CURSOR_HEADER, "2")
+                                .withBodyFile("reviews.json")
                         )
         );
 
         // when
-        webClient.get().uri(MOVIES_URL + "/{id}", MOVIE_ID)
+        webClient.get().uri(MOVIES_URL + "/{id}?limit={limit}", MOVIE_ID, 2)
                 .exchange()
                 .expectStatus().isOk()
                 .expectBody(Movie.class)
                 .consumeWith(movieEntityExchangeResult -> {
-                    Movie movie = movieEntityExchangeResult.getResponseBody();
-                    assert Objects.requireNonNull(movie).getReviewList().isEmpty();
+                    Movie movie = Objects.requireNonNull(movieEntityExchangeResult.getResponseBody());
+                    assertEquals(2, movie.getReviewList().size());
+                    assertEquals("2", movie.getNextReviewCursor());
+                });
+
+        // then
+        WireMock.verify(getRequestedFor(urlPathEqualTo(REVIEWS_URL)).withQueryParam("limit", equalTo("2")));
+    }
+
+    @Test
+    void retrieveMovieById_reviewSummary() {
+        // given
+        stubFor(
+                get(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("movieinfo.json")
+                        )
+        );
+
+        stubFor(
+                get(urlPathEqualTo(REVIEWS_URL + "/summary"))
+                        .withQueryParam("movieInfoId", equalTo(MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody("{\"movieInfoId\":1,\"count\":2,\"averageRating\":8.5,\"ratingHistogram\":{\"8\":1,\"9\":1}}")
+                        )
+        );
+
+        // when
+        webClient.get().uri(MOVIES_URL + "/{id}?reviews=summary", MOVIE_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    Movie movie = Objects.requireNonNull(movieEntityExchangeResult.getResponseBody());
+                    assertNull(movie.getReviewList());
+                    assertEquals(2, movie.getReviewSummary().getCount());
+                    assertEquals(8.5, movie.getReviewSummary().getAverageRating());
+                    assertEquals(Map.of(8, 1L, 9, 1L), movie.getReviewSummary().getRatingHistogram());
+                });
+
+        // then
+        WireMock.verify(0, getRequestedFor(urlPathEqualTo(REVIEWS_URL)));
+    }
+
+    @Test
+    void retrieveMovieByIdStream() {
+        // given
+        stubFor(
+                get(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("movieinfo.json")
+                        )
+        );
+
+        stubFor(
+                get(urlPathEqualTo(REVIEWS_URL))
+                        .withQueryParam("movieInfoId", equalTo(MOVIE_ID))
+                        .withHeader("Accept", containing("application/x-ndjson"))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/x-ndjson")
+                                .withBody("{\"reviewId\":\"1\",\"movieInfoId\":1,\"comment\":\"Awesome Movie\",\"rating\":9.0}\n"
+                                        + "{\"reviewId\":\"2\",\"movieInfoId\":1,\"comment\":\"Excellent Movie\",\"rating\":8.0}\n")
+                        )
+        );
+
+        // when
+        Flux<String> lines = webClient.get().uri(MOVIES_URL + "/{id}", MOVIE_ID)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                .returnResult(String.class)
+                .getResponseBody();
+
+        // then
+        StepVerifier.create(lines)
+                .expectNextMatches(line -> line.contains("\"name\":\"Batman Begins\""))
+                .expectNextMatches(line -> line.contains("\"rating\""))
+                .expectNextMatches(line -> line.contains("\"rating\""))
+                .verifyComplete();
+    }
+
+    @Test
+    void retrieveMovieById_fields() {
+        // given
+        stubFor(
+                get(urlPathEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID))
+                        .withQueryParam("fields", equalTo("name,year"))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody("{\"movieInfoId\":\"" + MOVIE_ID + "\",\"name\":\"Batman Begins\",\"year\":2005}")
+                        )
+        );
+
+        // when
+        webClient.get().uri(MOVIES_URL + "/{id}?fields=name,year", MOVIE_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    Movie movie = Objects.requireNonNull(movieEntityExchangeResult.getResponseBody());
                     assertEquals("Batman Begins", movie.getMovieInfo().getName());
+                    assertNull(movie.getMovieInfo().getRelease_date());
+                    assertNull(movie.getReviewList());
                 });
 
+        // then
+        WireMock.verify(0, getRequestedFor(urlPathMatching(REVIEWS_URL + ".*")));
     }
 
     @Test
-    void retrieveMovieById_5XX() {
+    void retrieveMovieById_cachedMovieInfo() {
         // given
         stubFor(
                 get(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID))
                         .willReturn(aResponse()
-                                .withStatus(HttpStatus.INTERNAL_SERVER_ERROR)
-                                .withBody("MovieInfo Service Unavailable")
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("movieinfo.json")
+                        )
+        );
+
+        stubFor(
+                get(urlPathEqualTo(REVIEWS_URL))
+                        .withQueryParam("movieInfoId", equalTo(MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
                         )
         );
 
         // when
-        webClient.get().uri(MOVIES_URL + "/{id}", MOVIE_ID)
+        for (int i = 0; i < 2; i++) {
+            webClient.get().uri(MOVIES_URL + "/{id}", MOVIE_ID)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(Movie.class)
+                    .consumeWith(movieEntityExchangeResult -> {
+                        Movie movie = movieEntityExchangeResult.getResponseBody();
+                        assertEquals("Batman Begins", Objects.requireNonNull(movie).getMovieInfo().getName());
+                    });
+        }
+
+        // then
+        WireMock.verify(1, getRequestedFor(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID)));
+        WireMock.verify(2, getRequestedFor(urlPathEqualTo(REVIEWS_URL)));
+    }
+
+    @Test
+    void retrieveMoviesByIds() {
+        // given
+        stubFor(
+                get(urlPathEqualTo(MOVIE_INFOS_URL))
+                        .withQueryParam("ids", equalTo("1,2"))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("movieinfos.json")
+                        )
+        );
+
+        stubFor(
+                get(urlPathEqualTo(REVIEWS_URL))
+                        .withQueryParam("movieInfoIds", equalTo("1,2"))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
+                        )
+        );
+
+        // when
+        webClient.get().uri(MOVIES_URL + "?ids={ids}", "1,2")
                 .exchange()
-                .expectStatus()
-                .is5xxServerError()
-                .expectBody(String.class)
-                .isEqualTo("Server Exception in MoviesInfoService MovieInfo Service Unavailable");
+                .expectStatus().isOk()
+                .expectBodyList(Movie.class)
+                .hasSize(2)
+                .consumeWith(movieEntityExchangeResult -> {
+                    List<Movie> movies = Objects.requireNonNull(movieEntityExchangeResult.getResponseBody());
+                    assertEquals(2, movies.get(0).getReviewList().size());
+                    assertEquals(0, movies.get(1).getReviewList().size());
+                });
 
-        WireMock.verify(4, getRequestedFor(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID)));
+        // then
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo(MOVIE_INFOS_URL)));
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo(REVIEWS_URL)));
     }
 
     @Test
-    void retrieveMovieById_reviews_5XX() {
+    void retrieveMovieById_propagatesDeadline() {
         // given
+        long deadline = System.currentTimeMillis() + 5_000;
+
         stubFor(
                 get(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID))
                         .willReturn(aResponse()
@@ -179,8 +434,75 @@ public class MoviesControllerIntegrationTest {
                 get(urlPathEqualTo(REVIEWS_URL))
                         .withQueryParam("movieInfoId", equalTo(MOVIE_ID))
                         .willReturn(aResponse()
-                                .withStatus(HttpStatus.INTERNAL_SERVER_ERROR)
-                                .withBody("Review Service Unavailable")
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
+                        )
+        );
+
+        // when
+        webClient.get().uri(MOVIES_URL + "/{id}", MOVIE_ID)
+                .header(DeadlineUtil.DEADLINE_HEADER, String.valueOf(deadline))
+                .exchange()
+                .expectStatus().isOk();
+
+        // then
+        WireMock.verify(1, getRequestedFor(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID))
+                .withHeader(DeadlineUtil.DEADLINE_HEADER, equalTo(String.valueOf(deadline))));
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo(REVIEWS_URL))
+                .withHeader(DeadlineUtil.DEADLINE_HEADER, equalTo(String.valueOf(deadline))));
+    }
+
+    @Test
+    void retrieveMovieById_deadlineExceeded() {
+        // given
+        String slowMovieId = "SLOW";
+
+        stubFor(
+                get(urlEqualTo(MOVIE_INFOS_URL + "/" + slowMovieId))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("movieinfo.json")
+                                .withFixedDelay(2_000)
+                        )
+        );
+
+        stubFor(
+                get(urlPathEqualTo(REVIEWS_URL))
+                        .withQueryParam("movieInfoId", equalTo(slowMovieId))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
+                        )
+        );
+
+        // when
+        webClient.get().uri(MOVIES_URL + "/{id}", slowMovieId)
+                .header(DeadlineUtil.DEADLINE_HEADER, String.valueOf(System.currentTimeMillis() + 300))
+                .exchange()
+                .expectStatus()
+                .isEqualTo(504);
+    }
+
+    @Test
+    void retrieveMovieById_404() {
+        // given
+        stubFor(
+                get(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.NOT_FOUND)
+                        )
+        );
+
+        stubFor(
+                get(urlPathEqualTo(REVIEWS_URL))
+                        .withQueryParam("movieInfoId", equalTo(MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
                         )
         );
 
@@ -188,10 +510,517 @@ public class MoviesControllerIntegrationTest {
         webClient.get().uri(MOVIES_URL + "/{id}", MOVIE_ID)
                 .exchange()
                 .expectStatus()
-                .is5xxServerError()
+                .is4xxClientError()
                 .expectBody(String.class)
-                .isEqualTo("Server Exception in ReviewsService Review Service Unavailable");
+                .isEqualTo("MovieInfo not found for id: " + MOVIE_ID);
 
-        WireMock.verify(4, getRequestedFor(urlPathMatching(REVIEWS_URL + "/*")));
+        WireMock.verify(1, getRequestedFor(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID)));
+    }
+
+    @Test
+    void retrieveMovieById_404_cachesMiss() {
+        // given
+        stubFor(
+                get(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.NOT_FOUND)
+                        )
+        );
+
+        stubFor(
+                get(urlPathEqualTo(REVIEWS_URL))
+                        .withQueryParam("movieInfoId", equalTo(MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
+                        )
+        );
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            webClient.get().uri(MOVIES_URL + "/{id}", MOVIE_ID)
+                    .exchange()
+                    .expectStatus()
+                    .isNotFound()
+                    .expectBody(String.class)
+                    .isEqualTo("MovieInfo not found for id: " + MOVIE_ID);
+        }
+
+        // then
+        WireMock.verify(1, getRequestedFor(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID)));
+        assertTrue(missingMovieInfoCache.isMissing(MOVIE_ID));
+    }
+
+    @Test
+    void retrieveMovieById_reviews_404() {
+        // given
+        stubFor(
+                get(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("movieinfo.json")
+                        )
+        );
+
+        stubFor(
+                get(urlPathEqualTo(REVIEWS_URL))
+                        .withQueryParam("movieInfoId", equalTo(MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.NOT_FOUND)
+                        )
+        );
+
+        // when
+        webClient.get().uri(MOVIES_URL + "/{id}", MOVIE_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    Movie movie = movieEntityExchangeResult.getResponseBody();
+                    assert Objects.requireNonNull(movie).getReviewList().isEmpty();
+                    assertEquals("Batman Begins", movie.getMovieInfo().getName());
+                });
+
+    }
+
+    @Test
+    void retrieveMovieById_5XX() {
+        // given
+        stubFor(
+                get(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .withBody("MovieInfo Service Unavailable")
+                        )
+        );
+
+        stubFor(
+                get(urlPathEqualTo(REVIEWS_URL))
+                        .withQueryParam("movieInfoId", equalTo(MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
+                        )
+        );
+
+        // when
+        webClient.get().uri(MOVIES_URL + "/{id}", MOVIE_ID)
+                .exchange()
+                .expectStatus()
+                .is5xxServerError()
+                .expectBody(String.class)
+                .isEqualTo("Server Exception in MoviesInfoService MovieInfo Service Unavailable");
+
+        WireMock.verify(4, getRequestedFor(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID)));
+        assertTrue(meterRegistry.get("movies.client.errors").tag("downstream", "moviesInfo").tag("exception", "MoviesInfoServerException").counter().count() >= 1);
+        assertTrue(meterRegistry.get("movies.client.retries").tag("downstream", "moviesInfo").counter().count() >= 3);
+    }
+
+    @Test
+    void retrieveMovieById_504NotRetried() {
+        // given
+        stubFor(
+                get(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.GATEWAY_TIMEOUT)
+                                .withBody("Request deadline exceeded")
+                        )
+        );
+
+        stubFor(
+                get(urlPathEqualTo(REVIEWS_URL))
+                        .withQueryParam("movieInfoId", equalTo(MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
+                        )
+        );
+
+        // when
+        webClient.get().uri(MOVIES_URL + "/{id}", MOVIE_ID)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+
+        // then
+        WireMock.verify(1, getRequestedFor(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID)));
+    }
+
+    @Test
+    void retrieveMovieById_deadlineStopsRetries() {
+        // given
+        stubFor(
+                get(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .withBody("MovieInfo Service Unavailable")
+                                .withFixedDelay(200)
+                        )
+        );
+
+        stubFor(
+                get(urlPathEqualTo(REVIEWS_URL))
+                        .withQueryParam("movieInfoId", equalTo(MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
+                        )
+        );
+
+        // when
+        webClient.get().uri(MOVIES_URL + "/{id}", MOVIE_ID)
+                .header(DeadlineUtil.DEADLINE_HEADER, String.valueOf(System.currentTimeMillis() + 300))
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+        Mono.delay(Duration.ofSeconds(2)).block();
+
+        // then
+        assertTrue(findAll(getRequestedFor(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID))).size() <= 2);
+    }
+
+    @Test
+    void retrieveMovieById_reviews_5XX() {
+        // given
+        stubFor(
+                get(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("movieinfo.json")
+                        )
+        );
+
+        stubFor(
+                get(urlPathEqualTo(REVIEWS_URL))
+                        .withQueryParam("movieInfoId", equalTo(MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .withBody("Review Service Unavailable")
+                        )
+        );
+
+        // when
+        webClient.get().uri(MOVIES_URL + "/{id}", MOVIE_ID)
+                .exchange()
+                .expectStatus()
+                .is5xxServerError()
+                .expectBody(String.class)
+                .isEqualTo("Server Exception in ReviewsService Review Service Unavailable");
+
+        WireMock.verify(4, getRequestedFor(urlPathMatching(REVIEWS_URL + "/*")));
+    }
+
+    @Test
+    void retrieveMovieInfoStream_marksDeletedMovie() {
+        // given
+        stubFor(
+                get(urlPathEqualTo(MOVIE_INFOS_URL + "/stream"))
+                        .withQueryParam("offset", equalTo("0"))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/x-ndjson")
+                                .withBody(movieInfoLine("1") + "{\"movieInfoId\":\"1\",\"deleted\":true}\n")
+                        )
+        );
+
+        stubFor(
+                get(urlPathEqualTo(MOVIE_INFOS_URL + "/stream"))
+                        .withQueryParam("offset", equalTo("2"))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/x-ndjson")
+                                .withFixedDelay(5000)
+                        )
+        );
+
+        // when
+        Flux<String> lines = webClient.get().uri(MOVIES_URL + "/stream")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(String.class)
+                .getResponseBody();
+
+        // then
+        StepVerifier.create(lines)
+                .assertNext(line -> {
+                    assertTrue(line.contains("\"name\":\"Batman Begins\""));
+                    assertFalse(line.contains("\"deleted\""));
+                })
+                .expectNext("{\"movieInfoId\":\"1\",\"deleted\":true}")
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void retrieveMovieInfoStream_resumesFromLastDelivered() {
+        // given
+        stubFor(
+                get(urlPathEqualTo(MOVIE_INFOS_URL + "/stream"))
+                        .withQueryParam("offset", equalTo("0"))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/x-ndjson")
+                                .withBody(movieInfoLine("1") + movieInfoLine("2"))
+                        )
+        );
+
+        stubFor(
+                get(urlPathEqualTo(MOVIE_INFOS_URL + "/stream"))
+                        .withQueryParam("offset", equalTo("2"))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/x-ndjson")
+                                .withBody(movieInfoLine("3"))
+                        )
+        );
+
+        stubFor(
+                get(urlPathEqualTo(MOVIE_INFOS_URL + "/stream"))
+                        .withQueryParam("offset", equalTo("3"))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/x-ndjson")
+                                .withFixedDelay(5000)
+                        )
+        );
+
+        // when
+        Flux<MovieInfo> movieInfoFlux = webClient.get().uri(MOVIES_URL + "/stream")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(MovieInfo.class)
+                .getResponseBody();
+
+        // then
+        StepVerifier.create(movieInfoFlux)
+                .assertNext(movieInfo -> assertEquals("1", movieInfo.getMovieInfoId()))
+                .assertNext(movieInfo -> assertEquals("2", movieInfo.getMovieInfoId()))
+                .assertNext(movieInfo -> assertEquals("3", movieInfo.getMovieInfoId()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo(MOVIE_INFOS_URL + "/stream")).withQueryParam("offset", equalTo("2")));
+    }
+
+    @Test
+    void retrieveMovieInfoStream_restartsOffsetWhenEpochChanges() {
+        // given
+        stubFor(
+                get(urlPathEqualTo(MOVIE_INFOS_URL + "/stream"))
+                        .withQueryParam("offset", equalTo("0"))
+                        .withQueryParam("epoch", absent())
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/x-ndjson")
+                                .withHeader(MoviesInfoRestClient.STREAM_EPOCH_HEADER, "A")
+                                .withBody(movieInfoLine("1") + movieInfoLine("2"))
+                        )
+        );
+
+        stubFor(
+                get(urlPathEqualTo(MOVIE_INFOS_URL + "/stream"))
+                        .withQueryParam("offset", equalTo("2"))
+                        .withQueryParam("epoch", equalTo("A"))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/x-ndjson")
+                                .withHeader(MoviesInfoRestClient.STREAM_EPOCH_HEADER, "B")
+                                .withBody(movieInfoLine("3"))
+                        )
+        );
+
+        stubFor(
+                get(urlPathEqualTo(MOVIE_INFOS_URL + "/stream"))
+                        .withQueryParam("offset", equalTo("1"))
+                        .withQueryParam("epoch", equalTo("B"))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/x-ndjson")
+                                .withHeader(MoviesInfoRestClient.STREAM_EPOCH_HEADER, "B")
+                                .withBody(movieInfoLine("4"))
+                        )
+        );
+
+        // when
+        Flux<MovieInfo> movieInfoFlux = webClient.get().uri(MOVIES_URL + "/stream")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(MovieInfo.class)
+                .getResponseBody();
+
+        // then
+        StepVerifier.create(movieInfoFlux)
+                .assertNext(movieInfo -> assertEquals("1", movieInfo.getMovieInfoId()))
+                .assertNext(movieInfo -> assertEquals("2", movieInfo.getMovieInfoId()))
+                .assertNext(movieInfo -> assertEquals("3", movieInfo.getMovieInfoId()))
+                .assertNext(movieInfo -> assertEquals("4", movieInfo.getMovieInfoId()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    private String movieInfoLine(String movieInfoId) {
+        return "{\"movieInfoId\":\"" + movieInfoId + "\",\"name\":\"Batman Begins\",\"year\":2005,\"cast\":[\"Christian Bale\"],\"release_date\":\"2005-06-15\"}\n";
+    }
+
+    @Test
+    void retrieveMovieById_servesStaleOn5XX() {
+        // given
+        stubFor(
+                get(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("movieinfo.json")
+                        )
+        );
+
+        stubFor(
+                get(urlPathEqualTo(REVIEWS_URL))
+                        .withQueryParam("movieInfoId", equalTo(MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
+                        )
+        );
+
+        webClient.get().uri(MOVIES_URL + "/{id}", MOVIE_ID)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .doesNotExist(MoviesController.STALE_HEADER);
+
+        movieInfoCache.evictAll();
+        missingMovieInfoCache.evictAll();
+        stubFor(
+                get(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .withBody("MovieInfo Service Unavailable")
+                        )
+        );
+
+        // when
+        webClient.get().uri(MOVIES_URL + "/{id}", MOVIE_ID)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(MoviesController.STALE_HEADER, "true")
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    Movie movie = movieEntityExchangeResult.getResponseBody();
+                    assertNotNull(movie);
+                    assertEquals(2, movie.getReviewList().size());
+                });
+    }
+
+    @Test
+    void retrieveMovieById_servesStaleWhenReviewsCircuitOpen() {
+        // given
+        stubFor(
+                get(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("movieinfo.json")
+                        )
+        );
+
+        stubFor(
+                get(urlPathEqualTo(REVIEWS_URL))
+                        .withQueryParam("movieInfoId", equalTo(MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
+                        )
+        );
+
+        webClient.get().uri(MOVIES_URL + "/{id}", MOVIE_ID)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .doesNotExist(MoviesController.STALE_HEADER);
+
+        circuitBreakerRegistry.circuitBreaker("reviews").transitionToOpenState();
+
+        // when
+        webClient.get().uri(MOVIES_URL + "/{id}", MOVIE_ID)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(MoviesController.STALE_HEADER, "true")
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    Movie movie = movieEntityExchangeResult.getResponseBody();
+                    assertNotNull(movie);
+                    assertEquals(2, movie.getReviewList().size());
+                });
+
+        // then
+        webClient.get().uri(MOVIES_URL + "/{id}", MOVIE_ID)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(MoviesController.STALE_HEADER, "true")
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> assertEquals(2, Objects.requireNonNull(movieEntityExchangeResult.getResponseBody()).getReviewList().size()));
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo(REVIEWS_URL)));
+    }
+
+    @Test
+    void retrieveMovieById_withoutReviewsWhenCircuitOpenAndNothingStored() {
+        // given
+        stubFor(
+                get(urlEqualTo(MOVIE_INFOS_URL + "/" + MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("movieinfo.json")
+                        )
+        );
+        circuitBreakerRegistry.circuitBreaker("reviews").transitionToOpenState();
+
+        // when
+        webClient.get().uri(MOVIES_URL + "/{id}", MOVIE_ID)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .doesNotExist(MoviesController.STALE_HEADER)
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> assertTrue(Objects.requireNonNull(movieEntityExchangeResult.getResponseBody()).getReviewList().isEmpty()));
+
+        // then
+        circuitBreakerRegistry.circuitBreaker("reviews").reset();
+        stubFor(
+                get(urlPathEqualTo(REVIEWS_URL))
+                        .withQueryParam("movieInfoId", equalTo(MOVIE_ID))
+                        .willReturn(aResponse()
+                                .withStatus(HttpStatus.OK)
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
+                        )
+        );
+        webClient.get().uri(MOVIES_URL + "/{id}", MOVIE_ID)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> assertEquals(2, Objects.requireNonNull(movieEntityExchangeResult.getResponseBody()).getReviewList().size()));
     }
 }
@@ -0,0 +1,174 @@
+package com.mark.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mark.client.MoviesInfoRestClient;
+import com.mark.client.ReviewsRestClient;
+import com.mark.domain.Movie;
+import com.mark.domain.MovieInfo;
+import com.mark.domain.Review;
+import com.mark.exception.ReviewsServerException;
+import com.mark.stream.MovieInfoStreamPublisher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CacheInvalidationListenerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MoviesInfoRestClient moviesInfoRestClient = mock(MoviesInfoRestClient.class);
+    private final ReviewsRestClient reviewsRestClient = mock(ReviewsRestClient.class);
+    private final MovieInfoCache movieInfoCache = new MovieInfoCache(100, Duration.ofHours(1), Duration.ofHours(1), meterRegistry);
+    private final MissingMovieInfoCache missingMovieInfoCache = new MissingMovieInfoCache(100, Duration.ofHours(1), meterRegistry);
+    private final MovieResponseStore movieResponseStore = new MovieResponseStore(100, Duration.ofHours(1), Duration.ZERO, Duration.ofHours(1), meterRegistry);
+    private final MovieInfoStreamPublisher movieInfoStreamPublisher = new MovieInfoStreamPublisher(
+            moviesInfoRestClient, new ObjectMapper(), false, DataSize.ofKilobytes(256), 16, Duration.ZERO, meterRegistry);
+    private final CacheInvalidationListener listener = new CacheInvalidationListener(
+            movieInfoStreamPublisher, reviewsRestClient, movieInfoCache, missingMovieInfoCache, movieResponseStore, Duration.ofMillis(10), Duration.ofMillis(10));
+
+    @AfterEach
+    void tearDown() {
+        listener.stop();
+    }
+
+    private Movie movie(String movieId) {
+        return Movie.builder().movieInfo(MovieInfo.builder().movieInfoId(movieId).name("Batman Begins").build()).reviewList(List.of()).build();
+    }
+
+    private int load(String movieId, AtomicInteger loads) {
+        movieInfoCache.get(movieId, (id, cached) -> Mono.fromSupplier(() -> new ValidatedMovieInfo(MovieInfo.builder().movieInfoId(id).name("Batman Begins" + loads.incrementAndGet()).build(), null))).block();
+        movieResponseStore.get(movieId, () -> Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            return movie(movieId);
+        })).block();
+        return loads.get();
+    }
+
+    @Test
+    void movieInfoChange_evictsCachedEntries() {
+        // given
+        Sinks.Many<MovieInfo> movieInfos = Sinks.many().multicast().onBackpressureBuffer();
+        when(moviesInfoRestClient.retrieveMovieInfoStream()).thenReturn(movieInfos.asFlux());
+        when(reviewsRestClient.retrieveReviewStream()).thenReturn(Flux.never());
+        AtomicInteger loads = new AtomicInteger();
+        load("1", loads);
+        load("2", loads);
+        listener.start();
+
+        // when
+        movieInfos.tryEmitNext(MovieInfo.builder().movieInfoId("1").name("Batman Begins").build());
+
+        // then
+        assertEquals(6, load("1", loads));
+        assertEquals(6, load("2", loads));
+    }
+
+    @Test
+    void movieInfoChange_forgetsMissingMovie() {
+        // given
+        Sinks.Many<MovieInfo> movieInfos = Sinks.many().multicast().onBackpressureBuffer();
+        when(moviesInfoRestClient.retrieveMovieInfoStream()).thenReturn(movieInfos.asFlux());
+        when(reviewsRestClient.retrieveReviewStream()).thenReturn(Flux.never());
+        missingMovieInfoCache.markMissing("1");
+        missingMovieInfoCache.markMissing("2");
+        listener.start();
+
+        // when
+        movieInfos.tryEmitNext(MovieInfo.builder().movieInfoId("1").name("Batman Begins").build());
+
+        // then
+        assertFalse(missingMovieInfoCache.isMissing("1"));
+        assertTrue(missingMovieInfoCache.isMissing("2"));
+    }
+
+    @Test
+    void reviewChange_evictsStoredMovieResponses() {
+        // given
+        Sinks.Many<Review> reviews = Sinks.many().multicast().onBackpressureBuffer();
+        when(moviesInfoRestClient.retrieveMovieInfoStream()).thenReturn(Flux.never());
+        when(reviewsRestClient.retrieveReviewStream()).thenReturn(reviews.asFlux());
+        AtomicInteger loads = new AtomicInteger();
+        load("1", loads);
+        listener.start();
+
+        // when
+        reviews.tryEmitNext(Review.builder().reviewId("R1").movieInfoId(1L).comment("Awesome Movie").rating(9.0).build());
+
+        // then
+        assertEquals(3, load("1", loads));
+    }
+
+    @Test
+    void reviewStreamReconnect_evictsAllStoredMovieResponses() {
+        // given
+        Sinks.Many<Review> reviews = Sinks.many().multicast().onBackpressureBuffer();
+        when(moviesInfoRestClient.retrieveMovieInfoStream()).thenReturn(Flux.never());
+        when(reviewsRestClient.retrieveReviewStream())
+                .thenReturn(reviews.asFlux(), Flux.never());
+        AtomicInteger loads = new AtomicInteger();
+        load("1", loads);
+        load("2", loads);
+        listener.start();
+
+        // when
+        reviews.tryEmitError(new ReviewsServerException("Review stream closed by upstream"));
+
+        // then
+        Mono.delay(Duration.ofMillis(200)).block();
+        assertEquals(5, load("1", loads));
+        assertEquals(6, load("2", loads));
+    }
+
+    @Test
+    void movieInfoChange_sharesUpstreamWithStreamSubscribers() {
+        // given
+        AtomicInteger upstreamSubscriptions = new AtomicInteger();
+        Sinks.Many<MovieInfo> movieInfos = Sinks.many().multicast().onBackpressureBuffer();
+        when(moviesInfoRestClient.retrieveMovieInfoStream())
+                .thenReturn(movieInfos.asFlux().doOnSubscribe(subscription -> upstreamSubscriptions.incrementAndGet()));
+        when(reviewsRestClient.retrieveReviewStream()).thenReturn(Flux.never());
+        AtomicInteger loads = new AtomicInteger();
+        load("1", loads);
+        listener.start();
+
+        // when
+        StepVerifier.create(movieInfoStreamPublisher.movieInfoStream().take(1))
+                .then(() -> movieInfos.tryEmitNext(MovieInfo.builder().movieInfoId("1").name("Batman Begins").build()))
+                .expectNextMatches(movieInfo -> movieInfo.getMovieInfoId().equals("1"))
+                .verifyComplete();
+
+        // then
+        assertEquals(1, upstreamSubscriptions.get());
+        assertEquals(4, load("1", loads));
+    }
+
+    @Test
+    void stop_disposesStreams() {
+        // given
+        Sinks.Many<MovieInfo> movieInfos = Sinks.many().multicast().onBackpressureBuffer();
+        when(moviesInfoRestClient.retrieveMovieInfoStream()).thenReturn(movieInfos.asFlux());
+        when(reviewsRestClient.retrieveReviewStream()).thenReturn(Flux.never());
+        listener.start();
+
+        // when
+        listener.stop();
+
+        // then
+        assertFalse(listener.isRunning());
+        assertEquals(0, movieInfos.currentSubscriberCount());
+    }
+}
@@ -0,0 +1,62 @@
+package com.mark.cache;
+
+import com.mark.domain.MovieInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MovieInfoCacheTest {
+
+    private final MovieInfoCache cache = new MovieInfoCache(100, Duration.ofHours(1), Duration.ofHours(1), new SimpleMeterRegistry());
+
+    private ValidatedMovieInfo movieInfo(String etag) {
+        return new ValidatedMovieInfo(MovieInfo.builder().movieInfoId("1").name("Batman Begins").build(), etag);
+    }
+
+    @Test
+    void get_passesValidatedCopyAfterEvict() {
+        // given
+        List<ValidatedMovieInfo> previous = new ArrayList<>();
+        cache.get("1", (id, cached) -> {
+            previous.add(cached);
+            return Mono.just(movieInfo("\"v1\""));
+        }).block();
+
+        // when
+        cache.evict("1");
+        cache.get("1", (id, cached) -> {
+            previous.add(cached);
+            return Mono.just(cached);
+        }).block();
+
+        // then
+        assertEquals(2, previous.size());
+        assertNull(previous.get(0));
+        assertEquals("\"v1\"", previous.get(1).etag());
+    }
+
+    @Test
+    void evictAll_dropsValidatedCopies() {
+        // given
+        List<ValidatedMovieInfo> previous = new ArrayList<>();
+        cache.get("1", (id, cached) -> Mono.just(movieInfo("\"v1\""))).block();
+
+        // when
+        cache.evictAll();
+        cache.get("1", (id, cached) -> {
+            previous.add(cached);
+            return Mono.just(movieInfo("\"v2\""));
+        }).block();
+
+        // then
+        assertEquals(1, previous.size());
+        assertNull(previous.get(0));
+    }
+}
@@ -0,0 +1,119 @@
+package com.mark.cache;
+
+import com.mark.domain.Movie;
+import com.mark.domain.MovieInfo;
+import com.mark.exception.MoviesInfoClientException;
+import com.mark.exception.MoviesInfoServerException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MovieResponseStoreTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MutableClock clock = new MutableClock();
+    private final MovieResponseStore store = new MovieResponseStore(100, Duration.ofSeconds(5), Duration.ofSeconds(30), Duration.ofMinutes(10), meterRegistry, clock);
+
+    private Movie movie(String name) {
+        return Movie.builder().movieInfo(MovieInfo.builder().movieInfoId("1").name(name).build()).reviewList(List.of()).build();
+    }
+
+    @Test
+    void get_freshWithinSoftTtl() {
+        // given
+        AtomicInteger loads = new AtomicInteger();
+        store.get("1", () -> Mono.fromSupplier(() -> movie("Batman Begins" + loads.incrementAndGet()))).block();
+
+        // when
+        clock.advance(Duration.ofSeconds(5));
+
+        // then
+        StepVerifier.create(store.get("1", () -> Mono.fromSupplier(() -> movie("Batman Begins" + loads.incrementAndGet()))))
+                .assertNext(cachedMovie -> {
+                    assertFalse(cachedMovie.stale());
+                    assertEquals("Batman Begins1", cachedMovie.movie().getMovieInfo().getName());
+                })
+                .verifyComplete();
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_staleWhileRevalidate() {
+        // given
+        store.get("1", () -> Mono.just(movie("Batman Begins"))).block();
+
+        // when
+        clock.advance(Duration.ofSeconds(10));
+
+        // then
+        StepVerifier.create(store.get("1", () -> Mono.just(movie("The Dark Knight"))))
+                .assertNext(cachedMovie -> {
+                    assertTrue(cachedMovie.stale());
+                    assertEquals("Batman Begins", cachedMovie.movie().getMovieInfo().getName());
+                })
+                .verifyComplete();
+
+        StepVerifier.create(store.get("1", () -> Mono.error(new MoviesInfoServerException("unexpected load"))))
+                .assertNext(cachedMovie -> {
+                    assertFalse(cachedMovie.stale());
+                    assertEquals("The Dark Knight", cachedMovie.movie().getMovieInfo().getName());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void get_staleOnError() {
+        // given
+        store.get("1", () -> Mono.just(movie("Batman Begins"))).block();
+
+        // when
+        clock.advance(Duration.ofMinutes(1));
+
+        // then
+        StepVerifier.create(store.get("1", () -> Mono.error(new MoviesInfoServerException("Server Exception in MoviesInfoService"))))
+                .assertNext(cachedMovie -> assertEquals(true, cachedMovie.stale()))
+                .verifyComplete();
+        assertEquals(1.0, meterRegistry.get("movies.responses.stale").counter().count());
+
+        StepVerifier.create(store.get("1", () -> Mono.error(new MoviesInfoClientException("MovieInfo Not Found", 404))))
+                .expectError(MoviesInfoClientException.class)
+                .verify();
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
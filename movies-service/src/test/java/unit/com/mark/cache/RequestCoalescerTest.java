@@ -0,0 +1,76 @@
+package com.mark.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RequestCoalescerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RequestCoalescer requestCoalescer = new RequestCoalescer(meterRegistry);
+
+    @Test
+    void coalesce_sharesInFlightRequest() {
+        // given
+        AtomicInteger subscriptions = new AtomicInteger();
+        Sinks.One<String> upstream = Sinks.one();
+        Mono<String> request = upstream.asMono().doOnSubscribe(subscription -> subscriptions.incrementAndGet());
+
+        // when
+        Mono<String> first = requestCoalescer.coalesce("movieInfo", "1", () -> request);
+        Mono<String> second = requestCoalescer.coalesce("movieInfo", "1", () -> request);
+
+        // then
+        StepVerifier.create(Flux.merge(first, second))
+                .then(() -> upstream.tryEmitValue("Batman Begins"))
+                .expectNext("Batman Begins", "Batman Begins")
+                .verifyComplete();
+
+        assertEquals(1, subscriptions.get());
+        assertEquals(1.0, meterRegistry.get("movies.requests.coalesced").tag("name", "movieInfo").counter().count());
+    }
+
+    @Test
+    void coalesce_cancelDoesNotCancelOtherSubscribers() {
+        // given
+        Sinks.Many<Integer> upstream = Sinks.many().unicast().onBackpressureBuffer();
+
+        // when
+        Disposable cancelled = requestCoalescer.coalesceMany("reviews", "1", upstream::asFlux).subscribe();
+        Flux<Integer> remaining = requestCoalescer.coalesceMany("reviews", "1", upstream::asFlux);
+
+        // then
+        StepVerifier.create(remaining)
+                .then(cancelled::dispose)
+                .then(() -> {
+                    upstream.tryEmitNext(1);
+                    upstream.tryEmitComplete();
+                })
+                .expectNext(1)
+                .verifyComplete();
+    }
+
+    @Test
+    void coalesce_newRequestAfterCompletion() {
+        // given
+        AtomicInteger subscriptions = new AtomicInteger();
+
+        // when
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(requestCoalescer.coalesce("movieInfo", "1", () -> Mono.fromCallable(subscriptions::incrementAndGet)))
+                    .expectNextCount(1)
+                    .verifyComplete();
+        }
+
+        // then
+        assertEquals(2, subscriptions.get());
+    }
+}
@@ -1,32 +1,59 @@
 package com.mark.controller;
 
 
+import com.mark.cache.MovieResponseStore;
 import com.mark.client.MoviesInfoRestClient;
 import com.mark.client.ReviewsRestClient;
 import com.mark.domain.Movie;
 import com.mark.domain.MovieInfo;
 import com.mark.domain.Review;
+import com.mark.domain.ReviewPage;
+import com.mark.domain.ReviewSummary;
+import com.mark.exception.ConcurrencyLimitExceededException;
 import com.mark.exception.MoviesInfoClientException;
 import com.mark.exception.MoviesInfoServerException;
+import com.mark.stream.MovieInfoStreamPublisher;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.PublisherProbe;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(controllers = MoviesController.class)
 @AutoConfigureWebTestClient
+@Import({MovieResponseStore.class, SimpleMeterRegistry.class})
 public class MoviesControllerUnitTest {
 
     @MockBean
@@ -35,9 +62,20 @@ public class MoviesControllerUnitTest {
     @MockBean
     private ReviewsRestClient reviewsRestClient;
 
+    @MockBean
+    private MovieInfoStreamPublisher movieInfoStreamPublisher;
+
     @Autowired
     private WebTestClient webClient;
 
+    @Autowired
+    private MovieResponseStore movieResponseStore;
+
+    @BeforeEach
+    void setUp() {
+        movieResponseStore.evictAll();
+    }
+
     private List<Review> initReviews() {
         return List.of(
                 Review.builder().movieInfoId(1L).comment("Awesome Movie").rating(9.0).build(),
@@ -53,11 +91,11 @@ public class MoviesControllerUnitTest {
 
         String movieId = "abc";
 
-        when(moviesInfoRestClient.retrieveMovieInfo(anyString()))
+        when(moviesInfoRestClient.retrieveMovieInfo(anyString(), anyList()))
                 .thenReturn(Mono.just(MovieInfo.builder().movieInfoId(movieId).name("Batman Begins").year(2005).cast(List.of("Christian Bale", "Michael Cane")).release_date(LocalDate.parse("2005-06-15")).build()));
 
-        when(reviewsRestClient.retrieveReviews(anyString()))
-                .thenReturn(Flux.fromIterable(reviewList));
+        when(reviewsRestClient.retrieveReviews(anyString(), anyInt(), isNull()))
+                .thenReturn(Mono.just(new ReviewPage(reviewList, null)));
 
         //when
         webClient.get()
@@ -74,15 +112,256 @@ public class MoviesControllerUnitTest {
         //then
     }
 
+    @Test
+    void retrieveMovieByIdStream() {
+        List<Review> reviewList = initReviews();
+
+        String movieId = "abc";
+
+        when(moviesInfoRestClient.retrieveMovieInfo(anyString(), anyList()))
+                .thenReturn(Mono.just(MovieInfo.builder().movieInfoId(movieId).name("Batman Begins").year(2005).cast(List.of("Christian Bale", "Michael Cane")).release_date(LocalDate.parse("2005-06-15")).build()));
+
+        when(reviewsRestClient.streamReviews(anyString()))
+                .thenReturn(Flux.fromIterable(reviewList).concatWith(Flux.never()));
+
+        //when
+        Flux<String> lines = webClient.get()
+                .uri("/v1/movies/{id}", movieId)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class)
+                .getResponseBody();
+
+        //then
+        StepVerifier.create(lines)
+                .expectNextMatches(line -> line.contains("\"name\":\"Batman Begins\""))
+                .expectNextMatches(line -> line.contains("\"comment\":\"" + reviewList.get(0).getComment() + "\""))
+                .expectNextCount(reviewList.size() - 1)
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+        verify(reviewsRestClient, never()).retrieveReviews(anyString());
+    }
+
+    @Test
+    void retrieveMovieById_reviewPage() {
+        String movieId = "abc";
+
+        when(moviesInfoRestClient.retrieveMovieInfo(anyString(), anyList()))
+                .thenReturn(Mono.just(MovieInfo.builder().movieInfoId(movieId).name("Batman Begins").year(2005).cast(List.of("Christian Bale", "Michael Cane")).release_date(LocalDate.parse("2005-06-15")).build()));
+
+        when(reviewsRestClient.retrieveReviews(movieId, 2, "r1"))
+                .thenReturn(Mono.just(new ReviewPage(initReviews().subList(0, 2), "r3")));
+
+        //when
+        webClient.get()
+                .uri("/v1/movies/{id}?limit={limit}&cursor={cursor}", movieId, 2, "r1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                            var movie = Objects.requireNonNull(movieEntityExchangeResult.getResponseBody());
+                            assertEquals(2, movie.getReviewList().size());
+                            assertEquals("r3", movie.getNextReviewCursor());
+                        }
+                );
+    }
+
+    @Test
+    void retrieveMovieById_reviewPageLimitCapped() {
+        String movieId = "abc";
+
+        when(moviesInfoRestClient.retrieveMovieInfo(anyString(), anyList()))
+                .thenReturn(Mono.just(MovieInfo.builder().movieInfoId(movieId).name("Batman Begins").year(2005).cast(List.of("Christian Bale", "Michael Cane")).release_date(LocalDate.parse("2005-06-15")).build()));
+
+        when(reviewsRestClient.retrieveReviews(anyString(), anyInt(), isNull()))
+                .thenReturn(Mono.just(new ReviewPage(initReviews(), null)));
+
+        //when
+        webClient.get()
+                .uri("/v1/movies/{id}?limit={limit}", movieId, 1_000_000)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.nextReviewCursor").doesNotExist();
+
+        //then
+        verify(reviewsRestClient).retrieveReviews(movieId, 1000, null);
+    }
+
+    @Test
+    void retrieveMovieById_invalidLimit() {
+        //when
+        webClient.get()
+                .uri("/v1/movies/{id}?limit={limit}", "abc", 0)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void retrieveMovieById_reviewSummary() {
+        String movieId = "abc";
+
+        when(moviesInfoRestClient.retrieveMovieInfo(anyString(), anyList()))
+                .thenReturn(Mono.just(MovieInfo.builder().movieInfoId(movieId).name("Batman Begins").year(2005).cast(List.of("Christian Bale", "Michael Cane")).release_date(LocalDate.parse("2005-06-15")).build()));
+
+        when(reviewsRestClient.retrieveReviewSummary(anyString()))
+                .thenReturn(Mono.just(ReviewSummary.builder().movieInfoId(1L).count(3).averageRating(26.0 / 3).ratingHistogram(Map.of(8, 1L, 9, 2L)).build()));
+
+        //when
+        webClient.get()
+                .uri("/v1/movies/{id}?reviews=summary", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.movieInfo.name").isEqualTo("Batman Begins")
+                .jsonPath("$.reviewList").doesNotExist()
+                .jsonPath("$.reviewSummary.count").isEqualTo(3)
+                .jsonPath("$.reviewSummary.ratingHistogram.9").isEqualTo(2);
+
+        //then
+        verify(reviewsRestClient, never()).retrieveReviews(anyString(), anyInt(), any());
+    }
+
+    @Test
+    void retrieveMovieById_reviewSummaryCircuitOpen() {
+        String movieId = "abc";
+        CircuitBreaker circuitBreaker = CircuitBreaker.ofDefaults("reviews");
+        circuitBreaker.transitionToOpenState();
+
+        when(moviesInfoRestClient.retrieveMovieInfo(anyString(), anyList()))
+                .thenReturn(Mono.just(MovieInfo.builder().movieInfoId(movieId).name("Batman Begins").year(2005).cast(List.of("Christian Bale", "Michael Cane")).release_date(LocalDate.parse("2005-06-15")).build()));
+
+        when(reviewsRestClient.retrieveReviewSummary(anyString()))
+                .thenReturn(Mono.error(CallNotPermittedException.createCallNotPermittedException(circuitBreaker)));
+
+        //when
+        webClient.get()
+                .uri("/v1/movies/{id}?reviews=summary", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.movieInfo.name").isEqualTo("Batman Begins")
+                .jsonPath("$.reviewSummary").doesNotExist();
+    }
+
+    @Test
+    void retrieveMovieById_fieldsWithoutReviews() {
+        String movieId = "abc";
+
+        when(moviesInfoRestClient.retrieveMovieInfo(movieId, List.of("name", "year")))
+                .thenReturn(Mono.just(MovieInfo.builder().movieInfoId(movieId).name("Batman Begins").year(2005).build()));
+
+        //when
+        webClient.get()
+                .uri("/v1/movies/{id}?fields=year,name", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.movieInfo.name").isEqualTo("Batman Begins")
+                .jsonPath("$.movieInfo.cast").doesNotExist()
+                .jsonPath("$.reviewList").doesNotExist();
+
+        //then
+        verify(reviewsRestClient, never()).retrieveReviews(anyString(), anyInt(), any());
+        verify(reviewsRestClient, never()).retrieveReviewSummary(anyString());
+    }
+
+    @Test
+    void retrieveMovieById_fieldsWithReviews() {
+        String movieId = "abc";
+        List<Review> reviewList = initReviews();
+
+        when(moviesInfoRestClient.retrieveMovieInfo(movieId, List.of("name")))
+                .thenReturn(Mono.just(MovieInfo.builder().movieInfoId(movieId).name("Batman Begins").build()));
+
+        when(reviewsRestClient.retrieveReviews(anyString(), anyInt(), isNull()))
+                .thenReturn(Mono.just(new ReviewPage(reviewList, null)));
+
+        //when
+        webClient.get()
+                .uri("/v1/movies/{id}?fields=name,reviews", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.movieInfo.name").isEqualTo("Batman Begins")
+                .jsonPath("$.movieInfo.year").doesNotExist()
+                .jsonPath("$.reviewList.length()").isEqualTo(reviewList.size());
+    }
+
+    @Test
+    void retrieveMovieById_unknownReviewsMode() {
+        //when
+        webClient.get()
+                .uri("/v1/movies/{id}?reviews=all", "abc")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void retrieveMoviesByIds() {
+        List<Review> reviewList = initReviews();
+
+        when(moviesInfoRestClient.retrieveMovieInfos(anyList()))
+                .thenReturn(Flux.just(
+                        MovieInfo.builder().movieInfoId("1").name("Batman Begins").year(2005).cast(List.of("Christian Bale", "Michael Cane")).release_date(LocalDate.parse("2005-06-15")).build(),
+                        MovieInfo.builder().movieInfoId("2").name("The Dark Knight").year(2008).cast(List.of("Christian Bale", "HeathLedger")).release_date(LocalDate.parse("2008-07-18")).build()
+                ));
+
+        when(reviewsRestClient.retrieveReviews(anyList()))
+                .thenReturn(Flux.fromIterable(reviewList));
+
+        //when
+        webClient.get()
+                .uri("/v1/movies?ids={ids}", "1,2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Movie.class)
+                .hasSize(2)
+                .consumeWith(movieEntityExchangeResult -> {
+                            var movies = Objects.requireNonNull(movieEntityExchangeResult.getResponseBody());
+                            assertEquals(2, movies.get(0).getReviewList().size());
+                            assertEquals(1, movies.get(1).getReviewList().size());
+                        }
+                );
+    }
+
+    @Test
+    void retrieveMoviesByIds_emptyIds() {
+        //when
+        webClient.get()
+                .uri("/v1/movies?ids=")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        //then
+        verify(moviesInfoRestClient, never()).retrieveMovieInfos(anyList());
+        verify(reviewsRestClient, never()).retrieveReviews(anyList());
+    }
+
+    @Test
+    void retrieveMoviesByIds_tooManyIds() {
+        String ids = String.join(",", IntStream.rangeClosed(1, 101).mapToObj(String::valueOf).toList());
+
+        //when
+        webClient.get()
+                .uri("/v1/movies?ids={ids}", ids)
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        //then
+        verify(moviesInfoRestClient, never()).retrieveMovieInfos(anyList());
+    }
+
     @Test
     void retrieveMovieById_404() {
         List<Review> reviewList = initReviews();
 
-        when(moviesInfoRestClient.retrieveMovieInfo(anyString()))
+        when(moviesInfoRestClient.retrieveMovieInfo(anyString(), anyList()))
                 .thenReturn(Mono.error(new MoviesInfoClientException("MovieNotFound", 404)));
 
-        when(reviewsRestClient.retrieveReviews(anyString()))
-                .thenReturn(Flux.fromIterable(reviewList));
+        when(reviewsRestClient.retrieveReviews(anyString(), anyInt(), isNull()))
+                .thenReturn(Mono.just(new ReviewPage(reviewList, null)));
 
         //when
         webClient.get()
@@ -97,16 +376,39 @@ public class MoviesControllerUnitTest {
                 );
     }
 
+    @Test
+    void retrieveMovieById_404_cancelsReviews() {
+        PublisherProbe<ReviewPage> reviewsProbe = PublisherProbe.of(Mono.never());
+
+        when(moviesInfoRestClient.retrieveMovieInfo(anyString(), anyList()))
+                .thenReturn(Mono.error(new MoviesInfoClientException("MovieNotFound", 404)));
+
+        when(reviewsRestClient.retrieveReviews(anyString(), anyInt(), isNull()))
+                .thenReturn(reviewsProbe.mono());
+
+        //when
+        webClient.get()
+                .uri("/v1/movies/{id}", "abc")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(String.class)
+                .isEqualTo("MovieNotFound");
+
+        //then
+        assertTrue(reviewsProbe.wasSubscribed());
+        assertTrue(reviewsProbe.wasCancelled());
+    }
+
     @Test
     void retrieveMovieById_500() {
         List<Review> reviewList = initReviews();
 
         String errorMsg = "Service Unavailable";
-        when(moviesInfoRestClient.retrieveMovieInfo(anyString()))
+        when(moviesInfoRestClient.retrieveMovieInfo(anyString(), anyList()))
                 .thenReturn(Mono.error(new MoviesInfoServerException(errorMsg)));
 
-        when(reviewsRestClient.retrieveReviews(anyString()))
-                .thenReturn(Flux.fromIterable(reviewList));
+        when(reviewsRestClient.retrieveReviews(anyString(), anyInt(), isNull()))
+                .thenReturn(Mono.just(new ReviewPage(reviewList, null)));
 
         //when
         webClient.get()
@@ -120,4 +422,169 @@ public class MoviesControllerUnitTest {
                         }
                 );
     }
+
+    @Test
+    void retrieveMovieById_reviewsCircuitOpen() {
+        String movieId = "abc";
+        CircuitBreaker circuitBreaker = CircuitBreaker.ofDefaults("reviews");
+        circuitBreaker.transitionToOpenState();
+
+        when(moviesInfoRestClient.retrieveMovieInfo(anyString(), anyList()))
+                .thenReturn(Mono.just(MovieInfo.builder().movieInfoId(movieId).name("Batman Begins").year(2005).cast(List.of("Christian Bale", "Michael Cane")).release_date(LocalDate.parse("2005-06-15")).build()));
+
+        when(reviewsRestClient.retrieveReviews(anyString(), anyInt(), isNull()))
+                .thenReturn(Mono.error(CallNotPermittedException.createCallNotPermittedException(circuitBreaker)));
+
+        //when
+        webClient.get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                            var movie = movieEntityExchangeResult.getResponseBody();
+                            assert Objects.requireNonNull(movie).getReviewList().isEmpty();
+                            assertEquals("Batman Begins", movie.getMovieInfo().getName());
+                        }
+                );
+    }
+
+    @Test
+    void retrieveMovieById_reviewsConcurrencyLimitReached() {
+        String movieId = "abc";
+
+        when(moviesInfoRestClient.retrieveMovieInfo(anyString(), anyList()))
+                .thenReturn(Mono.just(MovieInfo.builder().movieInfoId(movieId).name("Batman Begins").year(2005).cast(List.of("Christian Bale", "Michael Cane")).release_date(LocalDate.parse("2005-06-15")).build()));
+
+        when(reviewsRestClient.retrieveReviews(anyString(), anyInt(), isNull()))
+                .thenReturn(Mono.error(new ConcurrencyLimitExceededException("Concurrency limit of 20 reached for reviews")));
+
+        //when
+        webClient.get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                            var movie = movieEntityExchangeResult.getResponseBody();
+                            assert Objects.requireNonNull(movie).getReviewList().isEmpty();
+                        }
+                );
+    }
+
+    @Test
+    void retrieveMovieById_moviesInfoConcurrencyLimitReached() {
+        when(moviesInfoRestClient.retrieveMovieInfo(anyString(), anyList()))
+                .thenReturn(Mono.error(new ConcurrencyLimitExceededException("Concurrency limit of 20 reached for moviesInfo")));
+
+        when(reviewsRestClient.retrieveReviews(anyString(), anyInt(), isNull()))
+                .thenReturn(Mono.just(new ReviewPage(initReviews(), null)));
+
+        //when
+        webClient.get()
+                .uri("/v1/movies/{id}", "abc")
+                .exchange()
+                .expectStatus().isEqualTo(503);
+    }
+
+    @Test
+    void retrieveMovieById_moviesInfoCircuitOpen() {
+        CircuitBreaker circuitBreaker = CircuitBreaker.ofDefaults("moviesInfo");
+        circuitBreaker.transitionToOpenState();
+
+        when(moviesInfoRestClient.retrieveMovieInfo(anyString(), anyList()))
+                .thenReturn(Mono.error(CallNotPermittedException.createCallNotPermittedException(circuitBreaker)));
+
+        when(reviewsRestClient.retrieveReviews(anyString(), anyInt(), isNull()))
+                .thenReturn(Mono.just(new ReviewPage(initReviews(), null)));
+
+        //when
+        webClient.get()
+                .uri("/v1/movies/{id}", "abc")
+                .exchange()
+                .expectStatus().isEqualTo(503);
+    }
+
+    @Test
+    void retrieveMovieInfoStream() {
+        byte[] first = "{\"movieInfoId\":\"1\",\"name\":\"Batman Begins\"}\n".getBytes(StandardCharsets.UTF_8);
+        byte[] second = "{\"movieInfoId\":\"2\",\"name\":\"The Dark Knight\"}\n".getBytes(StandardCharsets.UTF_8);
+
+        when(movieInfoStreamPublisher.movieInfoFrames()).thenReturn(Flux.just(first, second));
+
+        //when
+        Flux<String> lines = webClient.get()
+                .uri("/v1/movies/stream")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(String.class)
+                .getResponseBody();
+
+        //then
+        StepVerifier.create(lines)
+                .expectNext("{\"movieInfoId\":\"1\",\"name\":\"Batman Begins\"}")
+                .expectNext("{\"movieInfoId\":\"2\",\"name\":\"The Dark Knight\"}")
+                .verifyComplete();
+    }
+
+    @Test
+    void retrieveMovieStream() {
+        when(movieInfoStreamPublisher.movieInfoStream())
+                .thenReturn(Flux.just(
+                        MovieInfo.builder().movieInfoId("1").name("Batman Begins").year(2005).cast(List.of("Christian Bale", "Michael Cane")).release_date(LocalDate.parse("2005-06-15")).build(),
+                        MovieInfo.builder().movieInfoId("2").name("The Dark Knight").year(2008).cast(List.of("Christian Bale", "HeathLedger")).release_date(LocalDate.parse("2008-07-18")).build()
+                ));
+
+        when(reviewsRestClient.retrieveReviews(eq("1")))
+                .thenReturn(Flux.fromIterable(initReviews().subList(0, 2)).delayElements(Duration.ofMillis(100)));
+        when(reviewsRestClient.retrieveReviews(eq("2")))
+                .thenReturn(Flux.error(new RuntimeException("Review Service Unavailable")));
+
+        //when
+        Flux<Movie> movies = webClient.get()
+                .uri("/v1/movies/stream/enriched")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Movie.class)
+                .getResponseBody();
+
+        //then
+        StepVerifier.create(movies)
+                .assertNext(movie -> {
+                    assertEquals("Batman Begins", movie.getMovieInfo().getName());
+                    assertEquals(2, movie.getReviewList().size());
+                })
+                .assertNext(movie -> {
+                    assertEquals("The Dark Knight", movie.getMovieInfo().getName());
+                    assertTrue(movie.getReviewList().isEmpty());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void retrieveMovieStream_deletedMovieWithoutReviews() {
+        when(movieInfoStreamPublisher.movieInfoStream())
+                .thenReturn(Flux.just(MovieInfo.builder().movieInfoId("1").deleted(true).build()));
+
+        //when
+        Flux<Movie> movies = webClient.get()
+                .uri("/v1/movies/stream/enriched")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Movie.class)
+                .getResponseBody();
+
+        //then
+        StepVerifier.create(movies)
+                .assertNext(movie -> {
+                    assertTrue(movie.getMovieInfo().isDeleted());
+                    assertNull(movie.getReviewList());
+                })
+                .verifyComplete();
+        verify(reviewsRestClient, never()).retrieveReviews(anyString());
+    }
 }
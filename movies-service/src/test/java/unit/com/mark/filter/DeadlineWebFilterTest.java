@@ -0,0 +1,73 @@
+package com.mark.filter;
+
+import com.mark.util.DeadlineUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeadlineWebFilterTest {
+
+    private final DeadlineWebFilter deadlineWebFilter = new DeadlineWebFilter(Duration.ofSeconds(5));
+    private final AtomicReference<Instant> deadline = new AtomicReference<>();
+
+    private final WebFilterChain chain = exchange -> DeadlineUtil.propagateDeadline()
+            .filter(ClientRequest.create(HttpMethod.GET, URI.create("http://localhost:8080/v1/movieinfos/1")).build(), request -> {
+                DeadlineUtil.parse(request.headers().getFirst(DeadlineUtil.DEADLINE_HEADER)).ifPresent(deadline::set);
+                return Mono.empty();
+            })
+            .then();
+
+    private void filter(String deadlineHeader) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/v1/movies/1");
+        if (deadlineHeader != null) {
+            request.header(DeadlineUtil.DEADLINE_HEADER, deadlineHeader);
+        }
+        deadlineWebFilter.filter(MockServerWebExchange.from(request), chain).block();
+    }
+
+    @Test
+    void filter_keepsEarlierDeadline() {
+        // given
+        Instant requested = Instant.ofEpochMilli(Instant.now().plusSeconds(1).toEpochMilli());
+
+        // when
+        filter(String.valueOf(requested.toEpochMilli()));
+
+        // then
+        assertEquals(requested, deadline.get());
+    }
+
+    @Test
+    void filter_clampsLaterDeadlineToDefaultTimeout() {
+        // given
+        Instant requested = Instant.now().plus(Duration.ofHours(1));
+
+        // when
+        filter(String.valueOf(requested.toEpochMilli()));
+
+        // then
+        assertTrue(deadline.get().isBefore(Instant.now().plusSeconds(6)));
+    }
+
+    @Test
+    void filter_defaultsWithoutHeader() {
+        // when
+        filter(null);
+
+        // then
+        assertTrue(deadline.get().isAfter(Instant.now()));
+        assertTrue(deadline.get().isBefore(Instant.now().plusSeconds(6)));
+    }
+}
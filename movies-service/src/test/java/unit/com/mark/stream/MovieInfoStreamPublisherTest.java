@@ -0,0 +1,115 @@
+package com.mark.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import com.mark.client.MoviesInfoRestClient;
+import com.mark.domain.MovieInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MovieInfoStreamPublisherTest {
+
+    private final MoviesInfoRestClient moviesInfoRestClient = mock(MoviesInfoRestClient.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().modulesToInstall(new ParameterNamesModule()).build();
+
+    private MovieInfoStreamPublisher publisher(boolean passthrough, int subscriberBufferSize) {
+        return new MovieInfoStreamPublisher(moviesInfoRestClient, objectMapper, passthrough, DataSize.ofKilobytes(256), subscriberBufferSize, Duration.ZERO, meterRegistry);
+    }
+
+    private MovieInfo movieInfo(String movieInfoId) {
+        return MovieInfo.builder().movieInfoId(movieInfoId).name("Batman Begins").year(2005).cast(List.of("Christian Bale", "Michael Cane")).release_date(LocalDate.parse("2005-06-15")).build();
+    }
+
+    @Test
+    void movieInfoStream_sharesUpstream() {
+        // given
+        AtomicInteger upstreamSubscriptions = new AtomicInteger();
+        Sinks.Many<MovieInfo> upstream = Sinks.many().multicast().onBackpressureBuffer();
+        when(moviesInfoRestClient.retrieveMovieInfoStream())
+                .thenReturn(upstream.asFlux().doOnSubscribe(subscription -> upstreamSubscriptions.incrementAndGet()));
+
+        MovieInfoStreamPublisher publisher = publisher(false, 16);
+
+        // when
+        StepVerifier first = StepVerifier.create(publisher.movieInfoStream().take(2))
+                .expectNextCount(2)
+                .expectComplete()
+                .verifyLater();
+        StepVerifier second = StepVerifier.create(publisher.movieInfoStream().take(2))
+                .expectNextCount(2)
+                .expectComplete()
+                .verifyLater();
+
+        upstream.tryEmitNext(movieInfo("1"));
+        upstream.tryEmitNext(movieInfo("2"));
+
+        // then
+        first.verify(Duration.ofSeconds(5));
+        second.verify(Duration.ofSeconds(5));
+        assertEquals(1, upstreamSubscriptions.get());
+    }
+
+    @Test
+    void movieInfoStream_slowSubscriberDropsOldest() {
+        // given
+        Sinks.Many<MovieInfo> upstream = Sinks.many().multicast().onBackpressureBuffer();
+        when(moviesInfoRestClient.retrieveMovieInfoStream()).thenReturn(upstream.asFlux());
+
+        MovieInfoStreamPublisher publisher = publisher(false, 1);
+
+        // when
+        StepVerifier.create(publisher.movieInfoStream(), 0)
+                .then(() -> {
+                    upstream.tryEmitNext(movieInfo("1"));
+                    upstream.tryEmitNext(movieInfo("2"));
+                })
+                .thenRequest(1)
+                .assertNext(movieInfo -> assertEquals("2", movieInfo.getMovieInfoId()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        // then
+        assertEquals(1.0, meterRegistry.get("movies.stream.dropped").counter().count());
+    }
+
+    @Test
+    void movieInfoFrames_passthrough() throws Exception {
+        // given
+        byte[] frame = (objectMapper.writeValueAsString(movieInfo("1")) + "\n").getBytes(StandardCharsets.UTF_8);
+        when(moviesInfoRestClient.retrieveMovieInfoStreamFrames(anyInt())).thenReturn(Flux.just(frame));
+
+        MovieInfoStreamPublisher publisher = publisher(true, 16);
+
+        // when
+        StepVerifier.create(publisher.movieInfoFrames())
+                .assertNext(relayed -> assertSame(frame, relayed))
+                .verifyComplete();
+
+        // then
+        StepVerifier.create(publisher.movieInfoStream())
+                .assertNext(movieInfo -> assertEquals("1", movieInfo.getMovieInfoId()))
+                .verifyComplete();
+        verify(moviesInfoRestClient, never()).retrieveMovieInfoStream();
+    }
+}
@@ -0,0 +1,67 @@
+package com.mark.stream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NdjsonFramesTest {
+
+    private DataBuffer buffer(String content) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String text(byte[] frame) {
+        return new String(frame, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void split_acrossBufferBoundaries() {
+        // given
+        Flux<DataBuffer> buffers = Flux.just(buffer("{\"movieInfoId\":\"1\"}\n{\"movie"), buffer("InfoId\":\"2\"}"), buffer("\n\n{\"movieInfoId\":\"3\"}\n"));
+
+        // when
+        Flux<byte[]> frames = NdjsonFrames.split(buffers, 1024);
+
+        // then
+        StepVerifier.create(frames)
+                .assertNext(frame -> assertEquals("{\"movieInfoId\":\"1\"}\n", text(frame)))
+                .assertNext(frame -> assertEquals("{\"movieInfoId\":\"2\"}\n", text(frame)))
+                .assertNext(frame -> assertEquals("{\"movieInfoId\":\"3\"}\n", text(frame)))
+                .verifyComplete();
+    }
+
+    @Test
+    void split_incompleteLastLineIsNotEmitted() {
+        // given
+        Flux<DataBuffer> buffers = Flux.just(buffer("{\"movieInfoId\":\"1\"}\n{\"movieInfoId\""));
+
+        // when
+        Flux<byte[]> frames = NdjsonFrames.split(buffers, 1024);
+
+        // then
+        StepVerifier.create(frames)
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    void split_frameTooLarge() {
+        // given
+        Flux<DataBuffer> buffers = Flux.just(buffer("{\"movieInfoId\":"), buffer("\"1\"}\n"));
+
+        // when
+        Flux<byte[]> frames = NdjsonFrames.split(buffers, 16);
+
+        // then
+        StepVerifier.create(frames)
+                .expectError(DataBufferLimitException.class)
+                .verify();
+    }
+}
@@ -0,0 +1,116 @@
+package com.mark.util;
+
+import com.mark.config.RestClientProperties;
+import com.mark.exception.ConcurrencyLimitExceededException;
+import com.mark.exception.MoviesInfoClientException;
+import com.mark.exception.MoviesInfoServerException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ConcurrencyLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ConcurrencyLimiter concurrencyLimiter(int initialLimit) {
+        RestClientProperties.ConcurrencyLimit concurrencyLimit = new RestClientProperties.ConcurrencyLimit();
+        concurrencyLimit.setInitialLimit(initialLimit);
+        concurrencyLimit.setMinLimit(1);
+        return new ConcurrencyLimiter("moviesInfo", concurrencyLimit, meterRegistry);
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).tag("name", "moviesInfo").gauge().value();
+    }
+
+    @Test
+    void limit_rejectsOverLimit() {
+        ConcurrencyLimiter concurrencyLimiter = concurrencyLimiter(2);
+        Disposable first = concurrencyLimiter.limit(Mono.never()).subscribe();
+        Disposable second = concurrencyLimiter.limit(Flux.never()).subscribe();
+
+        StepVerifier.create(concurrencyLimiter.limit(Mono.just("third")))
+                .expectError(ConcurrencyLimitExceededException.class)
+                .verify();
+        assertEquals(2.0, gauge("movies.concurrency.inflight"));
+        assertEquals(1.0, meterRegistry.get("movies.concurrency.rejected").counter().count());
+
+        first.dispose();
+        second.dispose();
+
+        StepVerifier.create(concurrencyLimiter.limit(Mono.just("third")))
+                .expectNext("third")
+                .verifyComplete();
+        assertEquals(0.0, gauge("movies.concurrency.inflight"));
+    }
+
+    @Test
+    void limit_increasesOnFastCalls() {
+        ConcurrencyLimiter concurrencyLimiter = concurrencyLimiter(2);
+
+        StepVerifier.create(concurrencyLimiter.limit(Mono.just("movieInfo")))
+                .expectNext("movieInfo")
+                .verifyComplete();
+
+        assertEquals(3.0, gauge("movies.concurrency.limit"));
+    }
+
+    @Test
+    void limit_releasesFluxOnFirstElement() {
+        ConcurrencyLimiter concurrencyLimiter = concurrencyLimiter(2);
+
+        StepVerifier.create(concurrencyLimiter.limit(Flux.concat(Flux.just("review"), Flux.never())))
+                .expectNext("review")
+                .then(() -> assertEquals(0.0, gauge("movies.concurrency.inflight")))
+                .thenCancel()
+                .verify();
+
+        assertEquals(3.0, gauge("movies.concurrency.limit"));
+    }
+
+    @Test
+    void limit_decreasesOnSlowCalls() {
+        ConcurrencyLimiter concurrencyLimiter = concurrencyLimiter(10);
+        concurrencyLimiter.limit(Mono.delay(Duration.ofMillis(1))).block();
+        int limit = concurrencyLimiter.getLimit();
+
+        concurrencyLimiter.limit(Mono.delay(Duration.ofMillis(200))).block();
+
+        assertEquals((int) (limit * 0.9), concurrencyLimiter.getLimit());
+    }
+
+    @Test
+    void limit_decreasesOncePerWindowOnBurstOfSlowCalls() {
+        ConcurrencyLimiter concurrencyLimiter = concurrencyLimiter(10);
+        concurrencyLimiter.limit(Mono.delay(Duration.ofMillis(1))).block();
+        int limit = concurrencyLimiter.getLimit();
+
+        Flux.range(0, 5)
+                .flatMap(i -> concurrencyLimiter.limit(Mono.delay(Duration.ofMillis(200))))
+                .blockLast();
+
+        assertEquals((int) (limit * 0.9), concurrencyLimiter.getLimit());
+    }
+
+    @Test
+    void limit_decreasesOnlyOnOverload() {
+        ConcurrencyLimiter concurrencyLimiter = concurrencyLimiter(10);
+
+        StepVerifier.create(concurrencyLimiter.limit(Mono.error(new MoviesInfoClientException("MovieInfo not found", 404))))
+                .expectError(MoviesInfoClientException.class)
+                .verify();
+        assertEquals(10, concurrencyLimiter.getLimit());
+
+        StepVerifier.create(concurrencyLimiter.limit(Mono.error(new MoviesInfoServerException("Server Exception in MoviesInfoService"))))
+                .expectError(MoviesInfoServerException.class)
+                .verify();
+        assertEquals(9, concurrencyLimiter.getLimit());
+    }
+}
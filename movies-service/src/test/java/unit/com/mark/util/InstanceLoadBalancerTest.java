@@ -0,0 +1,188 @@
+package com.mark.util;
+
+import com.mark.config.RestClientProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InstanceLoadBalancerTest {
+
+    private static final URI FIRST = URI.create("http://first:8080");
+    private static final URI SECOND = URI.create("http://second:8080");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("http://localhost:8080/v1/movieinfos/1?name=Batman%20Begins")).build();
+    private final List<URI> requested = new ArrayList<>();
+
+    private InstanceLoadBalancer loadBalancer(Duration ejectionTime) {
+        RestClientProperties.LoadBalancer loadBalancer = new RestClientProperties.LoadBalancer();
+        loadBalancer.setInstances(List.of(FIRST, SECOND));
+        loadBalancer.setEjectAfterFailures(2);
+        loadBalancer.setEjectionTime(ejectionTime);
+        return new InstanceLoadBalancer("moviesInfo", loadBalancer, meterRegistry);
+    }
+
+    private ExchangeFunction respond(HttpStatus secondStatus) {
+        return request -> {
+            requested.add(request.url());
+            HttpStatus status = SECOND.getHost().equals(request.url().getHost()) ? secondStatus : HttpStatus.OK;
+            return Mono.just(ClientResponse.create(status).build());
+        };
+    }
+
+    private final ClientRequest streamRequest = ClientRequest.create(HttpMethod.GET, URI.create("http://localhost:8080/v1/movieinfos/stream?offset=0"))
+            .attribute(InstanceLoadBalancer.STREAM_ATTRIBUTE, true)
+            .build();
+
+    private void exchange(InstanceLoadBalancer loadBalancer, ExchangeFunction next, int times) {
+        for (int i = 0; i < times; i++) {
+            loadBalancer.filter(request, next).onErrorResume(ex -> Mono.empty()).block();
+        }
+    }
+
+    private long requestsTo(URI instance) {
+        return requested.stream().filter(url -> url.getHost().equals(instance.getHost())).count();
+    }
+
+    @Test
+    void filter_rewritesHostAndKeepsPathAndQuery() {
+        // given
+        InstanceLoadBalancer loadBalancer = loadBalancer(Duration.ofMinutes(1));
+
+        // when
+        exchange(loadBalancer, respond(HttpStatus.OK), 20);
+
+        // then
+        assertEquals(Set.of("/v1/movieinfos/1?name=Batman%20Begins"),
+                Set.copyOf(requested.stream().map(url -> url.getRawPath() + "?" + url.getRawQuery()).toList()));
+        assertTrue(requestsTo(FIRST) > 0);
+        assertTrue(requestsTo(SECOND) > 0);
+    }
+
+    @Test
+    void filter_prefersInstanceWithFewerOutstandingRequests() {
+        // given
+        InstanceLoadBalancer loadBalancer = loadBalancer(Duration.ofMinutes(1));
+        Disposable pending = loadBalancer.filter(request, request -> {
+            requested.add(request.url());
+            return Mono.never();
+        }).subscribe();
+        URI busy = requested.remove(0);
+
+        // when
+        exchange(loadBalancer, respond(HttpStatus.OK), 10);
+
+        // then
+        assertEquals(0, requested.stream().filter(url -> url.getHost().equals(busy.getHost())).count());
+        pending.dispose();
+    }
+
+    @Test
+    void filter_ejectsFailingInstance() {
+        // given
+        InstanceLoadBalancer loadBalancer = loadBalancer(Duration.ofMinutes(1));
+        exchange(loadBalancer, respond(HttpStatus.SERVICE_UNAVAILABLE), 20);
+        requested.clear();
+
+        // when
+        exchange(loadBalancer, respond(HttpStatus.SERVICE_UNAVAILABLE), 20);
+
+        // then
+        assertEquals(0, requestsTo(SECOND));
+        assertEquals(1.0, meterRegistry.get("movies.loadbalancer.available").tag("name", "moviesInfo").gauge().value());
+        assertEquals(1.0, meterRegistry.get("movies.loadbalancer.ejections").counter().count());
+    }
+
+    @Test
+    void filter_readmitsInstanceAfterSuccessfulProbe() {
+        // given
+        InstanceLoadBalancer loadBalancer = loadBalancer(Duration.ofMillis(50));
+        exchange(loadBalancer, request -> {
+            requested.add(request.url());
+            return SECOND.getHost().equals(request.url().getHost())
+                    ? Mono.error(new ConnectException("Connection refused"))
+                    : Mono.just(ClientResponse.create(HttpStatus.OK).build());
+        }, 20);
+        assertEquals(1.0, meterRegistry.get("movies.loadbalancer.available").tag("name", "moviesInfo").gauge().value());
+
+        // when
+        Mono.delay(Duration.ofMillis(100)).block();
+        requested.clear();
+        exchange(loadBalancer, respond(HttpStatus.OK), 1);
+
+        // then
+        assertEquals(List.of(SECOND.getHost()), requested.stream().map(URI::getHost).toList());
+        assertEquals(2.0, meterRegistry.get("movies.loadbalancer.available").tag("name", "moviesInfo").gauge().value());
+    }
+
+    @Test
+    void filter_pinsStreamsToOneInstance() {
+        // given
+        InstanceLoadBalancer loadBalancer = loadBalancer(Duration.ofMinutes(1));
+
+        // when
+        for (int i = 0; i < 10; i++) {
+            loadBalancer.filter(streamRequest, respond(HttpStatus.OK)).block();
+        }
+
+        // then
+        assertEquals(1, requested.stream().map(URI::getHost).distinct().count());
+    }
+
+    @Test
+    void filter_leavesStreamsOutOfOutstandingCount() {
+        // given
+        InstanceLoadBalancer loadBalancer = loadBalancer(Duration.ofMinutes(1));
+        Disposable stream = loadBalancer.filter(streamRequest, request -> {
+            requested.add(request.url());
+            return Mono.never();
+        }).subscribe();
+        requested.clear();
+
+        // when
+        exchange(loadBalancer, respond(HttpStatus.OK), 20);
+
+        // then
+        assertTrue(requestsTo(FIRST) > 0);
+        assertTrue(requestsTo(SECOND) > 0);
+        stream.dispose();
+    }
+
+    @Test
+    void filter_movesStreamOffEjectedInstance() {
+        // given
+        InstanceLoadBalancer loadBalancer = loadBalancer(Duration.ofMinutes(1));
+        loadBalancer.filter(streamRequest, respond(HttpStatus.OK)).block();
+        URI pinned = requested.remove(0);
+        ExchangeFunction pinnedFails = request -> {
+            requested.add(request.url());
+            HttpStatus status = pinned.getHost().equals(request.url().getHost()) ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.OK;
+            return Mono.just(ClientResponse.create(status).build());
+        };
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            loadBalancer.filter(streamRequest, pinnedFails).block();
+        }
+
+        // then
+        assertEquals(List.of(pinned.getHost(), pinned.getHost(), FIRST.getHost().equals(pinned.getHost()) ? SECOND.getHost() : FIRST.getHost()),
+                requested.stream().map(URI::getHost).toList());
+    }
+}
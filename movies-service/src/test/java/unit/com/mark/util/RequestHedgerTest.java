@@ -0,0 +1,92 @@
+package com.mark.util;
+
+import com.mark.config.RestClientProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RequestHedgerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private RequestHedger requestHedger(double maxTokens) {
+        RestClientProperties.Hedging hedging = new RestClientProperties.Hedging();
+        hedging.setEnabled(true);
+        hedging.setMinDelay(Duration.ofMillis(100));
+        hedging.setMaxTokens(maxTokens);
+        return new RequestHedger("moviesInfo", hedging, meterRegistry);
+    }
+
+    private double hedges(String outcome) {
+        return meterRegistry.get("movies.hedging.requests").tag("outcome", outcome).counter().count();
+    }
+
+    private long latencies() {
+        return meterRegistry.get("movies.hedging.latency").timer().count();
+    }
+
+    @Test
+    void hedge_slowPrimary() {
+        RequestHedger requestHedger = requestHedger(10);
+        AtomicInteger attempts = new AtomicInteger();
+
+        StepVerifier.withVirtualTime(() -> requestHedger.hedge(() -> attempts.incrementAndGet() == 1
+                        ? Mono.delay(Duration.ofSeconds(10)).thenReturn("primary")
+                        : Mono.just("hedge")))
+                .thenAwait(Duration.ofMillis(100))
+                .expectNext("hedge")
+                .verifyComplete();
+
+        assertEquals(2, attempts.get());
+        assertEquals(1.0, hedges("fired"));
+        assertEquals(1.0, hedges("won"));
+        assertEquals(1, latencies());
+    }
+
+    @Test
+    void hedge_recordsPrimaryLatencyOnFailure() {
+        RequestHedger requestHedger = requestHedger(10);
+
+        StepVerifier.withVirtualTime(() -> requestHedger.hedge(() -> Mono.error(new IllegalStateException("Server Exception in MoviesInfoService"))))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        assertEquals(1, latencies());
+    }
+
+    @Test
+    void hedge_fastPrimary() {
+        RequestHedger requestHedger = requestHedger(10);
+        AtomicInteger attempts = new AtomicInteger();
+
+        StepVerifier.withVirtualTime(() -> requestHedger.hedge(() -> Mono.just("attempt-" + attempts.incrementAndGet())))
+                .expectNext("attempt-1")
+                .verifyComplete();
+
+        assertEquals(1, attempts.get());
+        assertEquals(0.0, hedges("fired"));
+    }
+
+    @Test
+    void hedge_budgetExhausted() {
+        RequestHedger requestHedger = requestHedger(0);
+        AtomicInteger attempts = new AtomicInteger();
+
+        StepVerifier.withVirtualTime(() -> requestHedger.hedge(() -> {
+                    attempts.incrementAndGet();
+                    return Mono.delay(Duration.ofSeconds(1)).thenReturn("primary");
+                }))
+                .thenAwait(Duration.ofSeconds(1))
+                .expectNext("primary")
+                .verifyComplete();
+
+        assertEquals(1, attempts.get());
+        assertEquals(0.0, hedges("fired"));
+    }
+}
@@ -0,0 +1,56 @@
+package com.mark.util;
+
+import com.mark.config.RestClientProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryBudgetTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private RetryBudget retryBudget(double ratio, double maxTokens) {
+        RestClientProperties.RetryBudget properties = new RestClientProperties.RetryBudget();
+        properties.setRatio(ratio);
+        properties.setMaxTokens(maxTokens);
+        return new RetryBudget(properties, meterRegistry);
+    }
+
+    @Test
+    void tryAcquireRetry_exhausted() {
+        RetryBudget retryBudget = retryBudget(0.1, 2);
+
+        assertTrue(retryBudget.tryAcquireRetry());
+        assertTrue(retryBudget.tryAcquireRetry());
+        assertFalse(retryBudget.tryAcquireRetry());
+        assertEquals(1.0, meterRegistry.get("movies.retry.budget.exhausted").counter().count());
+    }
+
+    @Test
+    void recordRequest_refillsByRatio() {
+        RetryBudget retryBudget = retryBudget(0.1, 1);
+        retryBudget.tryAcquireRetry();
+
+        for (int i = 0; i < 9; i++) {
+            retryBudget.recordRequest();
+        }
+        assertFalse(retryBudget.tryAcquireRetry());
+
+        retryBudget.recordRequest();
+        assertTrue(retryBudget.tryAcquireRetry());
+    }
+
+    @Test
+    void recordRequest_cappedAtMaxTokens() {
+        RetryBudget retryBudget = retryBudget(0.5, 1);
+
+        for (int i = 0; i < 10; i++) {
+            retryBudget.recordRequest();
+        }
+
+        assertEquals(1.0, retryBudget.availableTokens());
+    }
+}
@@ -0,0 +1,75 @@
+package com.mark.util;
+
+import com.mark.config.RestClientProperties;
+import com.mark.exception.MoviesInfoServerException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RetryUtilTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Counter retries = meterRegistry.counter("movies.retries");
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    private RetryBudget retryBudget(double maxTokens) {
+        RestClientProperties.RetryBudget properties = new RestClientProperties.RetryBudget();
+        properties.setRatio(0);
+        properties.setMaxTokens(maxTokens);
+        return new RetryBudget(properties, meterRegistry);
+    }
+
+    private RestClientProperties.Retry retry(long maxAttempts) {
+        RestClientProperties.Retry retry = new RestClientProperties.Retry();
+        retry.setMaxAttempts(maxAttempts);
+        retry.setMinBackoff(Duration.ofMillis(1));
+        retry.setMaxBackoff(Duration.ofMillis(1));
+        return retry;
+    }
+
+    private Mono<String> failingCall() {
+        return Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(new MoviesInfoServerException("Server Exception in MoviesInfoService"));
+        });
+    }
+
+    @Test
+    void retrySpec_chargesOnlyIssuedRetries() {
+        // given
+        RetryBudget retryBudget = retryBudget(10);
+
+        // when
+        StepVerifier.create(failingCall().retryWhen(RetryUtil.retrySpec(retry(2), retryBudget, retries)))
+                .expectError(MoviesInfoServerException.class)
+                .verify(Duration.ofSeconds(5));
+
+        // then
+        assertEquals(3, attempts.get());
+        assertEquals(8.0, retryBudget.availableTokens());
+        assertEquals(2.0, retries.count());
+    }
+
+    @Test
+    void retrySpec_stopsWhenBudgetIsEmpty() {
+        // given
+        RetryBudget retryBudget = retryBudget(1);
+
+        // when
+        StepVerifier.create(failingCall().retryWhen(RetryUtil.retrySpec(retry(3), retryBudget, retries)))
+                .expectError(MoviesInfoServerException.class)
+                .verify(Duration.ofSeconds(5));
+
+        // then
+        assertEquals(2, attempts.get());
+        assertEquals(0.0, retryBudget.availableTokens());
+        assertEquals(1.0, retries.count());
+    }
+}